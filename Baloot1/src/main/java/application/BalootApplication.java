@@ -1,15 +1,26 @@
 package application;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import controllers.CommodityJsonConverter;
+import database.Database;
 import service.Baloot;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 
 @SpringBootApplication
 @ComponentScan(basePackages = "controllers")
 public class BalootApplication {
     public static void main(String[] args) {
-        Baloot.getInstance().fetchAndStoreData();
+        Baloot.getInstance();
         SpringApplication.run(BalootApplication.class, args);
     }
+
+    @Bean
+    public CommodityJsonConverter commodityJsonConverter(ObjectMapper objectMapper) {
+        CommodityJsonConverter converter = new CommodityJsonConverter(objectMapper, Database.getInstance());
+        Database.getInstance().addCommodityListener(converter);
+        return converter;
+    }
 }
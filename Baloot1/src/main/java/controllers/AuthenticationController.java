@@ -2,6 +2,7 @@ package controllers;
 
 import service.Baloot;
 import model.User;
+import exceptions.ChangeNotSaved;
 import exceptions.IncorrectPassword;
 import exceptions.NotExistentUser;
 import exceptions.UsernameAlreadyTaken;
@@ -49,6 +50,8 @@ public class AuthenticationController {
             return new ResponseEntity<>("signup successfully!", HttpStatus.OK);
         } catch (UsernameAlreadyTaken e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (ChangeNotSaved e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 }
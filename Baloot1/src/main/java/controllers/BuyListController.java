@@ -2,6 +2,7 @@ package controllers;
 
 import service.Baloot;
 import utils.BuyListItem;
+import utils.BuyListUpdate;
 import model.Commodity;
 import model.User;
 import exceptions.*;
@@ -89,6 +90,19 @@ public class BuyListController {
         }
     }
 
+    @PostMapping(value = "/buy-list/update")
+    public ResponseEntity<String> updateBuyList(@RequestBody BuyListUpdate input) {
+        try {
+            baloot.updateUserBuyList(input.getUsername(), input.getItems());
+            return new ResponseEntity<>("buy list updated successfully!", HttpStatus.OK);
+        } catch (MissingUserId | MissingCommodityId | NotExistentUser | NotExistentCommodity |
+                 CommodityIsNotInBuyList e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        } catch (MissingBuyListItems | NotInStock e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @PostMapping(value = "/buy-list/purchase")
     public ResponseEntity<String> purchaseBuyList(@RequestBody Map<String, String> input) {
         String username = input.get("username");
@@ -98,6 +112,8 @@ public class BuyListController {
             return new ResponseEntity<>("buy list purchased successfully!", HttpStatus.OK);
         } catch (InsufficientCredit | NotExistentUser | NotInStock e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (ChangeNotSaved e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 }
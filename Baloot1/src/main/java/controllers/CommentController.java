@@ -1,7 +1,7 @@
 package controllers;
 
 import service.Baloot;
-import model.Comment;
+import exceptions.ChangeNotSaved;
 import exceptions.NotExistentComment;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,15 +24,16 @@ public class CommentController {
     public ResponseEntity<String> likeComment(@PathVariable String id, @RequestBody Map<String, String> input) {
         int commentId = Integer.parseInt(id);
         try {
-            Comment comment = baloot.getCommentById(commentId);
             String username = input.get("username");
             if (username == null) {
                 return new ResponseEntity<>("username not supplied.", HttpStatus.BAD_REQUEST);
             }
-            comment.addUserVote(username, "like");
+            baloot.voteComment(commentId, username, "like");
             return new ResponseEntity<>("The comment was successfully liked!", HttpStatus.OK);
         } catch (NotExistentComment e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        } catch (ChangeNotSaved e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
@@ -40,15 +41,16 @@ public class CommentController {
     public ResponseEntity<String> dislikeComment(@PathVariable String id, @RequestBody Map<String, String> input) {
         int commentId = Integer.parseInt(id);
         try {
-            Comment comment = baloot.getCommentById(commentId);
             String username = input.get("username");
             if (username == null) {
                 return new ResponseEntity<>("username not supplied.", HttpStatus.BAD_REQUEST);
             }
-            comment.addUserVote(username, "dislike");
+            baloot.voteComment(commentId, username, "dislike");
             return new ResponseEntity<>("The comment was successfully disliked!", HttpStatus.OK);
         } catch (NotExistentComment e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        } catch (ChangeNotSaved e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 }
@@ -1,38 +1,143 @@
 package controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import database.CommodityOrder;
+import defines.Settings;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
 import service.Baloot;
 import model.Comment;
 import model.Commodity;
 import model.User;
+import exceptions.ChangeNotSaved;
 import exceptions.NotExistentCommodity;
 import exceptions.NotExistentUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import utils.ETags;
+import utils.Page;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static defines.Errors.MISSING_COMMODITY_ID;
 import static defines.Errors.NOT_EXISTENT_USER;
+import static defines.Errors.TOO_MANY_EXPORTS;
 
 @RestController
 public class CommoditiesController {
+    private static final String NDJSON = "application/x-ndjson";
+
     private Baloot baloot = Baloot.getInstance();
+    private ObjectWriter ndjsonWriter = ndjsonWriter(new ObjectMapper());
+    private final ThreadPoolTaskExecutor exportExecutor = exportExecutor();
 
     public void setBaloot(Baloot baloot) {
         this.baloot = baloot;
     }
+
+    // The application's mapper, so the export serializes exactly like the JSON endpoints.
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.ndjsonWriter = ndjsonWriter(objectMapper);
+    }
+
+    private static ObjectWriter ndjsonWriter(ObjectMapper objectMapper) {
+        return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE).withRootValueSeparator("\n");
+    }
+
+    // Exports hold a thread for as long as the client takes to read them, so they
+    // get a small pool of their own rather than the one other async requests share.
+    private static ThreadPoolTaskExecutor exportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("baloot-export-");
+        executor.setCorePoolSize(Settings.EXPORT_THREADS);
+        executor.setMaxPoolSize(Settings.EXPORT_THREADS);
+        executor.setQueueCapacity(Settings.EXPORT_QUEUE_CAPACITY);
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdownExportExecutor() {
+        exportExecutor.shutdown();
+    }
     
     @GetMapping(value = "/commodities")
     public ResponseEntity<ArrayList<Commodity>> getCommodities() {
         return new ResponseEntity<>(baloot.getCommodities(), HttpStatus.OK);
     }
 
+    @GetMapping(value = "/commodities", params = "limit")
+    public ResponseEntity<Page<Commodity>> getCommoditiesPage(@RequestParam int limit,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "id") String sort) {
+        if (limit < 1 || limit > Settings.MAX_PAGE_SIZE)
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+
+        try {
+            CommodityOrder order = CommodityOrder.valueOf(sort.toUpperCase());
+            return new ResponseEntity<>(baloot.getCommoditiesPage(order, cursor, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // One JSON object per line, written as the catalog is walked and flushed every
+    // few hundred lines. Writes block while a slow client drains the socket, so
+    // memory stays flat whatever the size of the catalog. The export runs off the
+    // request thread, on the export pool, with a timeout longer than other async requests get.
+    @GetMapping(value = "/commodities/export")
+    @ResponseStatus(HttpStatus.OK)
+    public WebAsyncTask<Void> exportCommodities(HttpServletResponse response) {
+        Iterable<Commodity> commodities = baloot.iterateCommodities();
+        return new WebAsyncTask<>(Settings.EXPORT_TIMEOUT_MILLIS, exportExecutor, () -> {
+            response.setContentType(NDJSON);
+            ServletOutputStream out = response.getOutputStream();
+            try (SequenceWriter writer = ndjsonWriter.writeValues(out)) {
+                int written = 0;
+                for (Commodity commodity : commodities) {
+                    writer.write(commodity);
+                    if (++written % Settings.EXPORT_FLUSH_EVERY == 0)
+                        writer.flush();
+                }
+                writer.flush();
+                if (written > 0)
+                    out.write('\n');
+            }
+            return null;
+        });
+    }
+
+    // An export the pool and its queue have no room for.
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> exportRejected() {
+        return new ResponseEntity<>(TOO_MANY_EXPORTS, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @GetMapping(value = "/commodities/{id}")
-    public ResponseEntity<Commodity> getCommodity(@PathVariable String id) {
+    public ResponseEntity<Commodity> getCommodity(@PathVariable String id,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             Commodity commodity = baloot.getCommodityById(id);
-            return new ResponseEntity<>(commodity, HttpStatus.OK);
+            String etag = ETags.of(commodity.getVersion());
+            if (ETags.matches(ifNoneMatch, etag))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+
+            return ResponseEntity.ok().eTag(etag).body(commodity);
         } catch (NotExistentCommodity e) {
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
         }
@@ -43,13 +148,19 @@ public class CommoditiesController {
         try {
             int rate = Integer.parseInt(input.get("rate"));
             String username = input.get("username");
+            if (username == null) {
+                return new ResponseEntity<>("username not supplied.", HttpStatus.BAD_REQUEST);
+            }
+            Commodity.checkRate(rate);
             Commodity commodity = baloot.getCommodityById(id);
-            commodity.addRate(username, rate);
+            baloot.rateCommodity(commodity, username, rate);
             return new ResponseEntity<>("rate added successfully!", HttpStatus.OK);
         } catch (NotExistentCommodity e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (ChangeNotSaved e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
@@ -67,16 +178,85 @@ public class CommoditiesController {
         }
 
         Comment comment = new Comment(commentId, user.getEmail(), user.getUsername(), Integer.parseInt(id), commentText);
-        baloot.addComment(comment);
+        try {
+            baloot.addComment(comment);
+        } catch (ChangeNotSaved e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
 
         return new ResponseEntity<>("comment added successfully!", HttpStatus.OK);
     }
 
+    // Every comment is checked before any is added, so a rejected batch adds nothing.
+    @PostMapping(value = "/commodities/comments")
+    public ResponseEntity<String> addCommodityComments(@RequestBody List<Map<String, String>> input) {
+        Map<String, User> users = new HashMap<>();
+        List<Comment> comments = new ArrayList<>(input.size());
+        String date = Comment.currentDate();
+        for (Map<String, String> entry : input) {
+            String username = entry.get("username");
+            if (username == null)
+                return new ResponseEntity<>("username not supplied.", HttpStatus.BAD_REQUEST);
+
+            int commodityId;
+            try {
+                commodityId = Integer.parseInt(entry.get("commodityId"));
+            } catch (NumberFormatException e) {
+                return new ResponseEntity<>(MISSING_COMMODITY_ID, HttpStatus.BAD_REQUEST);
+            }
+
+            User user = users.get(username);
+            if (user == null) {
+                try {
+                    user = baloot.getUserById(username);
+                } catch (NotExistentUser e) {
+                    return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+                }
+                users.put(username, user);
+            }
+
+            comments.add(new Comment(0, user.getEmail(), user.getUsername(), commodityId, entry.get("comment"), date));
+        }
+
+        if (comments.isEmpty())
+            return new ResponseEntity<>("0 comments added successfully!", HttpStatus.OK);
+
+        int commentId = baloot.generateCommentIds(comments.size());
+        for (Comment comment : comments)
+            comment.setId(commentId++);
+        try {
+            baloot.addComments(comments);
+        } catch (ChangeNotSaved e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return new ResponseEntity<>(comments.size() + " comments added successfully!", HttpStatus.OK);
+    }
+
+    // The version is read before the comments, so a change racing with this
+    // request moves the tag past what the client received.
     @GetMapping(value = "/commodities/{id}/comment")
-    public ResponseEntity<ArrayList<Comment>> getCommodityComment(@PathVariable String id) {
-        ArrayList<Comment> comments = baloot.getCommentsForCommodity(Integer.parseInt(id));
+    public ResponseEntity<ArrayList<Comment>> getCommodityComment(@PathVariable String id,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int commodityId = Integer.parseInt(id);
+        String etag = ETags.of(baloot.getCommentsVersion(commodityId));
+        if (ETags.matches(ifNoneMatch, etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+
+        ArrayList<Comment> comments = baloot.getCommentsForCommodity(commodityId);
+        return ResponseEntity.ok().eTag(etag).body(comments);
+    }
 
-        return new ResponseEntity<>(comments, HttpStatus.OK);
+    @GetMapping(value = "/commodities/{id}/comment", params = "limit")
+    public ResponseEntity<Page<Comment>> getCommodityCommentPage(@PathVariable String id, @RequestParam int limit,
+                                                                 @RequestParam(required = false) String cursor) {
+        if (limit < 1 || limit > Settings.MAX_PAGE_SIZE)
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+
+        try {
+            return new ResponseEntity<>(baloot.getCommentsPageForCommodity(Integer.parseInt(id), cursor, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
     }
 
     @PostMapping(value = "/commodities/search")
@@ -87,6 +267,8 @@ public class CommoditiesController {
         ArrayList<Commodity> commodities = switch (searchOption) {
             case "name" -> baloot.filterCommoditiesByName(searchValue);
             case "category" -> baloot.filterCommoditiesByCategory(searchValue);
+            case "allCategories" -> baloot.filterCommoditiesByCategories(List.of(searchValue.split(",")), true);
+            case "anyCategory" -> baloot.filterCommoditiesByCategories(List.of(searchValue.split(",")), false);
             case "provider" -> baloot.filterCommoditiesByProviderName(searchValue);
             default -> new ArrayList<>();
         };
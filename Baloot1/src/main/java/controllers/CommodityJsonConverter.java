@@ -0,0 +1,156 @@
+package controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import database.CommodityListener;
+import database.Database;
+import defines.Settings;
+import model.Commodity;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Writes commodities, alone or in collections, from cached JSON. A commodity's
+// bytes stay valid while its version does: a change bumps the version and the
+// next write serializes again. Large lists, such as the whole catalog, are also
+// kept whole while the commodity table's version and that of every commodity in
+// them stand still. Replacing the catalog drops everything, and the cache never
+// holds more than a set number of commodities.
+public class CommodityJsonConverter extends AbstractGenericHttpMessageConverter<Object> implements CommodityListener {
+    private static final int CACHED_LIST_MIN_SIZE = 64;
+
+    private final ObjectMapper objectMapper;
+    private final Database database;
+    private final Map<String, Serialized> commodities = new ConcurrentHashMap<>();
+    private volatile SerializedList lastList;
+
+    private record Serialized(Commodity commodity, long version, byte[] json) {
+    }
+
+    private record SerializedList(Commodity[] commodities, long[] versions, long tableVersion, byte[] json) {
+    }
+
+    public CommodityJsonConverter(ObjectMapper objectMapper, Database database) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+        this.database = database;
+    }
+
+    @Override
+    public void commodityChanged(Commodity commodity) {
+    }
+
+    @Override
+    public void commoditiesReset() {
+        commodities.clear();
+        lastList = null;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Commodity.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (Commodity.class.isAssignableFrom(clazz) || isCommodityCollection(type)) && canWrite(mediaType);
+    }
+
+    private static boolean isCommodityCollection(Type type) {
+        return type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw && Collection.class.isAssignableFrom(raw)
+                && parameterized.getActualTypeArguments()[0] == Commodity.class;
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        byte[] json = value instanceof Commodity commodity ? json(commodity) : json((Collection<?>) value);
+        outputMessage.getBody().write(json);
+    }
+
+    byte[] json(Commodity commodity) throws IOException {
+        long version = commodity.getVersion();
+        Serialized cached = commodity.getId() == null ? null : commodities.get(commodity.getId());
+        if (cached != null && cached.commodity() == commodity && cached.version() == version)
+            return cached.json();
+
+        byte[] json = objectMapper.writeValueAsBytes(commodity);
+        if (commodity.getId() != null && commodities.put(commodity.getId(), new Serialized(commodity, version, json)) == null)
+            evictOverLimit();
+
+        return json;
+    }
+
+    private void evictOverLimit() {
+        Iterator<String> ids = commodities.keySet().iterator();
+        while (commodities.size() > Settings.COMMODITY_JSON_CACHE_SIZE && ids.hasNext()) {
+            ids.next();
+            ids.remove();
+        }
+    }
+
+    // Versions are read first: a change that lands while the list is written
+    // moves them past the ones stored with the bytes.
+    byte[] json(Collection<?> values) throws IOException {
+        long tableVersion = database.getCommoditiesVersion();
+        Commodity[] list = values.toArray(new Commodity[0]);
+        long[] versions = new long[list.length];
+        for (int i = 0; i < list.length; i++)
+            versions[i] = list[i].getVersion();
+
+        SerializedList cached = lastList;
+        if (cached != null && cached.tableVersion() == tableVersion && sameCommodities(cached, list, versions))
+            return cached.json();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < list.length; i++) {
+            if (i > 0)
+                out.write(',');
+            out.write(json(list[i]));
+        }
+        out.write(']');
+
+        byte[] json = out.toByteArray();
+        if (list.length >= CACHED_LIST_MIN_SIZE)
+            lastList = new SerializedList(list, versions, tableVersion, json);
+
+        return json;
+    }
+
+    private static boolean sameCommodities(SerializedList cached, Commodity[] list, long[] versions) {
+        if (cached.commodities().length != list.length)
+            return false;
+
+        for (int i = 0; i < list.length; i++)
+            if (cached.commodities()[i] != list[i] || cached.versions()[i] != versions[i])
+                return false;
+
+        return true;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Commodities are only written.", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Commodities are only written.", inputMessage);
+    }
+}
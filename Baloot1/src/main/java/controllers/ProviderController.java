@@ -4,11 +4,14 @@ import service.Baloot;
 import model.Commodity;
 import model.Provider;
 import exceptions.NotExistentProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import utils.ETags;
 
 import java.util.ArrayList;
 
@@ -21,10 +24,15 @@ public class ProviderController {
     }
     
     @GetMapping(value = "/providers/{id}")
-    public ResponseEntity<Provider> getProvider(@PathVariable String id) {
+    public ResponseEntity<Provider> getProvider(@PathVariable String id,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             Provider provider = baloot.getProviderById(id);
-            return new ResponseEntity<>(provider, HttpStatus.OK);
+            String etag = ETags.of(provider.getVersion());
+            if (ETags.matches(ifNoneMatch, etag))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+
+            return ResponseEntity.ok().eTag(etag).body(provider);
         } catch (NotExistentProvider e) {
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
         }
@@ -2,6 +2,7 @@ package controllers;
 
 import service.Baloot;
 import model.User;
+import exceptions.ChangeNotSaved;
 import exceptions.InvalidCreditRange;
 import exceptions.NotExistentUser;
 import org.springframework.http.HttpStatus;
@@ -36,7 +37,9 @@ public class UserController {
         }
         try {
             float credit = Float.parseFloat(creditStr);
-            baloot.getUserById(id).addCredit(credit);
+            User.checkCredit(credit);
+            User user = baloot.getUserById(id);
+            baloot.addCredit(user, credit);
             return new ResponseEntity<>("credit added successfully!", HttpStatus.OK);
         } catch (InvalidCreditRange e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
@@ -44,6 +47,8 @@ public class UserController {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
         } catch (NumberFormatException e) {
             return new ResponseEntity<>("Please enter a valid number for the credit amount.", HttpStatus.BAD_REQUEST);
+        } catch (ChangeNotSaved e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Readers never lock: an element is stored before the size that exposes it is
+// published, and a grown array is published before the size that needs it.
+// Writers only serialize on the list for the append itself.
+public class AppendOnlyList<T> implements Iterable<T> {
+    private volatile Object[] elements;
+    private volatile int size;
+
+    public AppendOnlyList() {
+        this(4);
+    }
+
+    public AppendOnlyList(int initialCapacity) {
+        elements = new Object[Math.max(initialCapacity, 1)];
+    }
+
+    // Returns the index the element was stored at.
+    public synchronized int add(T element) {
+        Object[] current = elements;
+        int count = size;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, count * 2);
+            elements = current;
+        }
+
+        current[count] = element;
+        size = count + 1;
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        int count = size;
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException(index);
+
+        return (T) elements[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public ArrayList<T> toArrayList() {
+        int count = size;
+        Object[] current = elements;
+        ArrayList<T> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            result.add((T) current[i]);
+
+        return result;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        int count = size;
+        Object[] current = elements;
+        return new Iterator<>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (index >= count)
+                    throw new NoSuchElementException();
+
+                return (T) current[index++];
+            }
+        };
+    }
+}
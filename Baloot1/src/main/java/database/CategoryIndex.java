@@ -0,0 +1,68 @@
+package database;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class CategoryIndex {
+    private final Map<String, BitSet> postings = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(int ordinal, Collection<String> categories) {
+        lock.writeLock().lock();
+        try {
+            for (String category : categories)
+                postings.computeIfAbsent(category, k -> new BitSet()).set(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public BitSet matchAll(Collection<String> categories) {
+        lock.readLock().lock();
+        try {
+            BitSet result = null;
+            for (String category : categories) {
+                BitSet posting = postings.get(category);
+                if (posting == null)
+                    return new BitSet();
+
+                if (result == null)
+                    result = (BitSet) posting.clone();
+                else
+                    result.and(posting);
+            }
+
+            return result == null ? new BitSet() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public BitSet matchAny(Collection<String> categories) {
+        lock.readLock().lock();
+        try {
+            BitSet result = new BitSet();
+            for (String category : categories) {
+                BitSet posting = postings.get(category);
+                if (posting != null)
+                    result.or(posting);
+            }
+
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package database;
+
+import model.Comment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Where Database keeps comments. Database runs clear and load alone, and
+// serializes add and update per commodity; writes for different commodities
+// may overlap.
+public interface CommentStore {
+    void clear();
+
+    // Replaces every comment with those the loader hands over.
+    default void load(Database.Loader<Comment> loader) throws IOException {
+        clear();
+        loader.load(this::add);
+    }
+
+    void add(Comment comment);
+
+    // Applies the mutation, such as a new vote, to the stored comment while no
+    // other update of it can run, and keeps the result. Null if there is none.
+    Comment update(int commentId, Consumer<Comment> mutation);
+
+    Comment find(int commentId);
+
+    List<Comment> findByCommodity(int commodityId);
+
+    // At most limit comments of the commodity with ids above afterId, in id order.
+    List<Comment> findByCommodity(int commodityId, int afterId, int limit);
+
+    ArrayList<Comment> getAll();
+}
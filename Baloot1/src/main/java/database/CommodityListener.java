@@ -0,0 +1,11 @@
+package database;
+
+import model.Commodity;
+
+public interface CommodityListener {
+    // A commodity was added or its rating changed.
+    void commodityChanged(Commodity commodity);
+
+    // Every commodity was replaced.
+    void commoditiesReset();
+}
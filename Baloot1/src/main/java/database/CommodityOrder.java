@@ -0,0 +1,9 @@
+package database;
+
+// Orders commodity listings can be paged in.
+public enum CommodityOrder {
+    // Numeric ids by value: shorter ids first, then lexicographically.
+    ID,
+    // Best rated first, ties in the order commodities were added.
+    RATING
+}
@@ -1,64 +1,118 @@
 package database;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import model.Comment;
 import model.Commodity;
 import model.Provider;
+import lombok.extern.slf4j.Slf4j;
 import model.User;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 
+@Slf4j
 public class DataParser {
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final String dataPath = "src/main/java/database/data/";
+    private final String dataPath;
     Database database;
 
     public DataParser(Database database) {
+        this(database, "src/main/java/database/data/");
+    }
+
+    public DataParser(Database database, String dataPath) {
         this.database = database;
+        this.dataPath = dataPath;
     }
 
-    public void getUsersList() throws IOException {
-        String filePath = dataPath + "users.json";
-        String usersString = new String(Files.readAllBytes(Paths.get(filePath)));
+    // The tables share no locks or indexes, so the four files load side by side.
+    public void loadAll() throws IOException {
+        List<Callable<Void>> phases = List.of(
+                timed("users", this::getUsersList),
+                timed("providers", this::getProvidersList),
+                timed("commodities", this::getCommoditiesList),
+                timed("comments", this::getCommentsList));
 
-        List<User> userList = objectMapper.readValue(usersString, new TypeReference<>() {
-        });
-        database.setUsers((ArrayList<User>) userList);
+        ExecutorService executor = Executors.newFixedThreadPool(phases.size());
+        try {
+            for (Future<Void> phase : executor.invokeAll(phases))
+                phase.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading data.");
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    public void getProvidersList() throws IOException {
-        String filePath = dataPath + "providers.json";
-        String providersString = new String(Files.readAllBytes(Paths.get(filePath)));
+    private static Callable<Void> timed(String name, Phase phase) {
+        return () -> {
+            long start = System.nanoTime();
+            phase.run();
+            log.info("Loaded {} in {} ms", name, (System.nanoTime() - start) / 1_000_000);
+            return null;
+        };
+    }
 
-        List<Provider> providerList = objectMapper.readValue(providersString, new TypeReference<>() {
-        });
-        database.setProviders((ArrayList<Provider>) providerList);
+    public void getUsersList() throws IOException {
+        database.setUsers(new ArrayList<>());
+        stream("users.json", User.class, database::addUser);
     }
 
-    public void getCommoditiesList() throws IOException {
-        String filePath = dataPath + "commodities.json";
-        String commoditiesString = new String(Files.readAllBytes(Paths.get(filePath)));
+    public void getProvidersList() throws IOException {
+        database.setProviders(new ArrayList<>());
+        stream("providers.json", Provider.class, database::addProvider);
+    }
 
-        List<Commodity> commodityList = objectMapper.readValue(commoditiesString, new TypeReference<>() {
-        });
-        database.setCommodities((ArrayList<Commodity>) commodityList);
+    public void getCommoditiesList() throws IOException {
+        database.setCommodities(new ArrayList<>());
+        stream("commodities.json", Commodity.class, database::addCommodity);
     }
 
     public void getCommentsList() throws IOException {
-        String filePath = dataPath + "comments.json";
-        String commentsString = new String(Files.readAllBytes(Paths.get(filePath)));
+        int[] nextId = {0};
+        database.loadComments(sink -> stream("comments.json", Comment.class, comment -> {
+            comment.setId(nextId[0]++);
+            sink.accept(comment);
+        }));
+    }
+
+    // Walks the top-level array token by token and binds one record at a time,
+    // so only the record being parsed is held besides what the database keeps.
+    private <T> void stream(String fileName, Class<T> type, Consumer<T> sink) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+        try (FileChannel channel = FileChannel.open(Paths.get(dataPath + fileName), StandardOpenOption.READ);
+             JsonParser parser = objectMapper.getFactory().createParser(Channels.newInputStream(channel))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new JsonParseException(parser, "Expected an array of records in " + fileName);
 
-        List<Comment> commentsList = objectMapper.readValue(commentsString, new TypeReference<>() {
-        });
-        database.setComments((ArrayList<Comment>) commentsList);
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT)
+                sink.accept(reader.readValue(parser));
+            if (token != JsonToken.END_ARRAY)
+                throw new JsonParseException(parser, "Expected a record in " + fileName);
+        }
+    }
 
-        for (Comment comment : commentsList)
-            comment.setId(commentsList.indexOf(comment));
+    @FunctionalInterface
+    private interface Phase {
+        void run() throws IOException;
     }
 }
@@ -1,41 +1,677 @@
 package database;
 
+import defines.Settings;
 import model.Comment;
 import model.Commodity;
+import model.CommodityColumns;
 import model.Provider;
 import model.User;
+import model.Versions;
 import lombok.Getter;
-import lombok.Setter;
+import utils.IntIntMap;
+import utils.IntKeyedMap;
+import utils.Page;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-@Getter
-@Setter
 public class Database {
+    public static final int SIMILAR_CATEGORY_SCORE = 11;
+    private static final int ENTITY_LOCK_STRIPES = 256;
+    private static final Comparator<String> ID_ORDER =
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
     @Getter
     private static final Database instance = new Database();
 
+    // Per-user maps keyed by commodity ordinal encode their keys with this.
+    public static final IntKeyedMap.KeyCodec<String> COMMODITY_KEYS = new IntKeyedMap.KeyCodec<>() {
+        @Override
+        public int find(Object key) {
+            Integer ordinal = key instanceof String ? instance.commodityOrdinals.get(key) : null;
+            return ordinal == null ? IntIntMap.EMPTY : ordinal;
+        }
+
+        @Override
+        public int encode(String key) {
+            return instance.commodityOrdinal(key);
+        }
+
+        @Override
+        public String decode(int key) {
+            return instance.commoditySlots.get(key).id;
+        }
+    };
+
     private Database() {
     }
 
-    private ArrayList<User> users = new ArrayList<>();
-    private ArrayList<Provider> providers = new ArrayList<>();
-    private ArrayList<Commodity> commodities = new ArrayList<>();
-    private ArrayList<Comment> comments = new ArrayList<>();
+    // Writes to single entities share their table's read lock and serialize on
+    // a stripe picked by the entity's id (the commodity's id for comments), so
+    // only writers of the same entity wait for each other. Replacing a whole
+    // table takes its write lock. Readers never lock: they go through volatile
+    // lists and concurrent maps.
+    private final ReentrantReadWriteLock usersTable = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock providersTable = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock commoditiesTable = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock commentsTable = new ReentrantReadWriteLock();
+    private final StripedLock entityLocks = new StripedLock(ENTITY_LOCK_STRIPES);
+
+    private volatile AppendOnlyList<User> users = new AppendOnlyList<>();
+    private volatile AppendOnlyList<Provider> providers = new AppendOnlyList<>();
+    private volatile AppendOnlyList<Commodity> commodities = new AppendOnlyList<>();
+
+    private final Map<String, User> usersById = new ConcurrentHashMap<>();
+    private final Map<String, Provider> providersById = new ConcurrentHashMap<>();
+    private final Map<String, Commodity> commoditiesById = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Commodity> commoditiesInIdOrder = new ConcurrentSkipListMap<>(ID_ORDER);
+    private final Map<String, String> providerIdsByName = new ConcurrentHashMap<>();
+    private final Map<String, AppendOnlyList<Commodity>> commoditiesByProvider = new ConcurrentHashMap<>();
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private final NameIndex nameIndex = new NameIndex();
+    private final RatingIndex ratingIndex = new RatingIndex();
+    // Every commodity id gets an ordinal the first time it is seen and keeps it
+    // for the life of the process, across setCommodities too. The indexes and
+    // the per-user maps share this one numbering. Ids that no stored commodity
+    // has, such as one left in a buy list, get an ordinal all the same.
+    private final Map<String, Integer> commodityOrdinals = new ConcurrentHashMap<>();
+    private final AppendOnlyList<CommoditySlot> commoditySlots = new AppendOnlyList<>();
+    // Hot fields of the stored commodities by the same ordinals. Checkout,
+    // search and suggestions read these rather than the objects.
+    private final CommodityColumns commodityColumns = new CommodityColumns();
+    private final List<CommodityListener> commodityListeners = new CopyOnWriteArrayList<>();
+    // Moves when a commodity joins the table or the table is replaced. Changes
+    // to a commodity already in it move only that commodity's own version.
+    private final AtomicLong commoditiesVersion = new AtomicLong();
+    private final CommentStore commentStore = createCommentStore();
+    private final AtomicInteger nextCommentId = new AtomicInteger();
+    // Version of each commodity's comments, moved on every new comment and vote.
+    // Commodities missing here have not changed since the comments were loaded,
+    // which a bulk load does without adding any entries.
+    private final Map<Integer, Long> commentVersions = new ConcurrentHashMap<>();
+    private volatile long loadedCommentsVersion = Versions.next();
+
+    public ArrayList<User> getUsers() {
+        return users.toArrayList();
+    }
+
+    public ArrayList<Provider> getProviders() {
+        return providers.toArrayList();
+    }
+
+    public ArrayList<Commodity> getCommodities() {
+        return commodities.toArrayList();
+    }
+
+    // Walks the commodities present when iteration starts, without copying them.
+    public Iterable<Commodity> iterateCommodities() {
+        return commodities;
+    }
+
+    public long getCommoditiesVersion() {
+        return commoditiesVersion.get();
+    }
+
+    public ArrayList<Comment> getComments() {
+        return commentStore.getAll();
+    }
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        void load(Consumer<T> sink) throws IOException;
+    }
+
+    private <T> T writeEntity(ReentrantReadWriteLock table, Object id, Supplier<T> write) {
+        table.readLock().lock();
+        Lock entity = entityLocks.get(id);
+        entity.lock();
+        try {
+            return write.get();
+        } finally {
+            entity.unlock();
+            table.readLock().unlock();
+        }
+    }
+
+    private void replaceTable(ReentrantReadWriteLock table, Runnable replace) {
+        table.writeLock().lock();
+        try {
+            replace.run();
+        } finally {
+            table.writeLock().unlock();
+        }
+    }
+
+    public void setUsers(ArrayList<User> users) {
+        replaceTable(usersTable, () -> {
+            this.users = new AppendOnlyList<>(users.size());
+            usersById.clear();
+            for (User user : users)
+                addUser(user);
+        });
+    }
+
+    public void setProviders(ArrayList<Provider> providers) {
+        replaceTable(providersTable, () -> {
+            this.providers = new AppendOnlyList<>(providers.size());
+            providersById.clear();
+            providerIdsByName.clear();
+            for (Provider provider : providers)
+                addProvider(provider);
+        });
+    }
+
+    public void setCommodities(ArrayList<Commodity> commodities) {
+        replaceTable(commoditiesTable, () -> {
+            this.commodities = new AppendOnlyList<>(commodities.size());
+            commoditiesById.clear();
+            commoditiesInIdOrder.clear();
+            commoditiesByProvider.clear();
+            categoryIndex.clear();
+            nameIndex.clear();
+            ratingIndex.clear();
+            for (CommoditySlot slot : commoditySlots) {
+                if (slot.commodity != null)
+                    commodityColumns.unbind(slot.commodity);
+                slot.commodity = null;
+            }
+            commoditiesVersion.incrementAndGet();
+            for (CommodityListener listener : commodityListeners)
+                listener.commoditiesReset();
+            for (Commodity commodity : commodities)
+                addCommodity(commodity);
+        });
+    }
+
+    public void setComments(ArrayList<Comment> comments) {
+        try {
+            loadComments(comments::forEach);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-    public void addUser(User user) {
-        users.add(user);
+    // Replaces every comment with those the loader hands to its sink, holding
+    // the comments table for the whole load. The load gets a single version
+    // rather than one per commented commodity.
+    public void loadComments(Loader<Comment> loader) throws IOException {
+        commentsTable.writeLock().lock();
+        try {
+            nextCommentId.set(0);
+            commentVersions.clear();
+            commentStore.load(sink -> loader.load(comment -> {
+                sink.accept(comment);
+                nextCommentId.accumulateAndGet(comment.getId() + 1, Math::max);
+            }));
+            loadedCommentsVersion = Versions.next();
+        } finally {
+            commentsTable.writeLock().unlock();
+        }
+    }
+
+    public boolean addUser(User user) {
+        return writeEntity(usersTable, user.getUsername(), () -> {
+            String username = user.getUsername();
+            if (username != null && usersById.putIfAbsent(username, user) != null)
+                return false;
+
+            users.add(user);
+            return true;
+        });
     }
 
     public void addProvider(Provider provider) {
-        providers.add(provider);
+        writeEntity(providersTable, provider.getId(), () -> {
+            providers.add(provider);
+            if (provider.getId() != null)
+                providersById.putIfAbsent(provider.getId(), provider);
+            if (provider.getName() != null && provider.getId() != null)
+                providerIdsByName.putIfAbsent(provider.getName(), provider.getId());
+            return null;
+        });
     }
 
     public void addCommodity(Commodity commodity) {
-        commodities.add(commodity);
+        writeEntity(commoditiesTable, commodity.getId(), () -> {
+            commodities.add(commodity);
+            commoditiesVersion.incrementAndGet();
+            if (commodity.getProviderId() != null)
+                commoditiesByProvider.computeIfAbsent(commodity.getProviderId(), k -> new AppendOnlyList<>()).add(commodity);
+            if (commodity.getId() == null || commoditiesById.putIfAbsent(commodity.getId(), commodity) != null)
+                return null;
+
+            commoditiesInIdOrder.put(commodity.getId(), commodity);
+            int ordinal = commodityOrdinal(commodity.getId());
+            commodityColumns.bind(commodity, ordinal);
+            commoditySlots.get(ordinal).commodity = commodity;
+            categoryIndex.add(ordinal, commodity.getCategories());
+            nameIndex.add(ordinal, commodity.getName());
+            ratingIndex.update(ordinal, commodity.getCategories(), commodity.getRating());
+            return null;
+        });
+        for (CommodityListener listener : commodityListeners)
+            listener.commodityChanged(commodity);
+    }
+
+    public void addCommodityListener(CommodityListener listener) {
+        commodityListeners.add(listener);
+    }
+
+    // The rating is read under the commodity's lock, so whichever update runs
+    // last indexes the newest rating, whatever order concurrent raters publish in.
+    public void updateCommodityRating(Commodity commodity) {
+        if (commodity.getId() == null)
+            return;
+
+        boolean indexed = writeEntity(commoditiesTable, commodity.getId(), () -> {
+            Integer ordinal = commodityOrdinals.get(commodity.getId());
+            if (ordinal == null || commodityAt(ordinal) != commodity)
+                return false;
+
+            ratingIndex.update(ordinal, commodity.getCategories(), commodity.getRating());
+            return true;
+        });
+        if (!indexed)
+            return;
+
+        for (CommodityListener listener : commodityListeners)
+            listener.commodityChanged(commodity);
     }
 
     public void addComment(Comment comment) {
-        comments.add(comment);
+        writeEntity(commentsTable, comment.getCommodityId(), () -> {
+            storeComment(comment);
+            commentVersions.put(comment.getCommodityId(), Versions.next());
+            return null;
+        });
+    }
+
+    // Takes the table lock once and each commodity's stripe once for its group.
+    public void addComments(List<Comment> comments) {
+        Map<Integer, List<Comment>> byCommodity = new LinkedHashMap<>();
+        for (Comment comment : comments)
+            byCommodity.computeIfAbsent(comment.getCommodityId(), k -> new ArrayList<>()).add(comment);
+
+        commentsTable.readLock().lock();
+        try {
+            for (Map.Entry<Integer, List<Comment>> group : byCommodity.entrySet()) {
+                Lock entity = entityLocks.get(group.getKey());
+                entity.lock();
+                try {
+                    for (Comment comment : group.getValue())
+                        storeComment(comment);
+                    commentVersions.put(group.getKey(), Versions.next());
+                } finally {
+                    entity.unlock();
+                }
+            }
+        } finally {
+            commentsTable.readLock().unlock();
+        }
+    }
+
+    private void storeComment(Comment comment) {
+        commentStore.add(comment);
+        nextCommentId.accumulateAndGet(comment.getId() + 1, Math::max);
+    }
+
+    // Null if there is no comment with the id.
+    public Comment updateComment(int commentId, Consumer<Comment> mutation) {
+        Comment stored = commentStore.find(commentId);
+        if (stored == null)
+            return null;
+
+        int commodityId = stored.getCommodityId();
+        return writeEntity(commentsTable, commodityId, () -> {
+            Comment comment = commentStore.update(commentId, mutation);
+            if (comment != null)
+                commentVersions.put(commodityId, Versions.next());
+            return comment;
+        });
+    }
+
+    public long getCommentsVersion(int commodityId) {
+        return commentVersions.getOrDefault(commodityId, loadedCommentsVersion);
+    }
+
+    public int nextCommentId() {
+        return nextCommentId.getAndIncrement();
+    }
+
+    // The first of count consecutive ids reserved for the caller.
+    public int nextCommentIds(int count) {
+        return nextCommentId.getAndAdd(count);
+    }
+
+    public User findUser(String username) {
+        return username == null ? null : usersById.get(username);
+    }
+
+    public Provider findProvider(String providerId) {
+        return providerId == null ? null : providersById.get(providerId);
+    }
+
+    public String findProviderIdByName(String providerName) {
+        return providerName == null ? null : providerIdsByName.get(providerName);
+    }
+
+    public List<Commodity> findCommoditiesByProvider(String providerId) {
+        AppendOnlyList<Commodity> result = providerId == null ? null : commoditiesByProvider.get(providerId);
+        return result == null ? List.of() : result.toArrayList();
+    }
+
+    // Matching all categories takes the first one's posting from the index and
+    // checks the rest against the category column, unless one of them has no bit.
+    public List<Commodity> findCommoditiesByCategories(Collection<String> categories, boolean matchAll) {
+        long required = 0;
+        boolean byColumn = matchAll && !categories.isEmpty();
+        for (String category : categories) {
+            long bit = byColumn ? commodityColumns.findCategoryBit(category) : 0;
+            if (bit == 0 || bit == CommodityColumns.OTHER_CATEGORIES)
+                byColumn = false;
+            required |= bit;
+        }
+
+        BitSet ordinals;
+        if (byColumn)
+            ordinals = categoryIndex.matchAny(List.of(categories.iterator().next()));
+        else
+            ordinals = matchAll ? categoryIndex.matchAll(categories) : categoryIndex.matchAny(categories);
+
+        List<Commodity> result = new ArrayList<>(ordinals.cardinality());
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+            Commodity commodity = commodityAt(i);
+            if (commodity != null && (!byColumn || (commodityColumns.getCategoryBits(i) & required) == required))
+                result.add(commodity);
+        }
+
+        return result;
+    }
+
+    public List<Commodity> findCommoditiesByName(String name) {
+        List<Commodity> result = new ArrayList<>();
+        if (!nameIndex.canAnswer(name)) {
+            for (Commodity commodity : commodities)
+                if (commodity.getName().contains(name))
+                    result.add(commodity);
+
+            return result;
+        }
+
+        for (int ordinal : nameIndex.candidates(name)) {
+            Commodity commodity = commodityAt(ordinal);
+            if (commodity != null && commodity.getName().contains(name))
+                result.add(commodity);
+        }
+
+        return result;
+    }
+
+    // Scores other commodities by 11 for sharing a category plus their rating and
+    // returns the best, highest first. Only the best rated of each shared category
+    // and the best rated overall are visited: walks stop once the remaining
+    // entries can no longer beat the weakest of the current best. Scores use the
+    // ratings stored in the index, so they always agree with the walk's order.
+    public List<Commodity> findSimilarCommodities(Commodity commodity, int limit) {
+        PriorityQueue<ScoredCommodity> best = new PriorityQueue<>(limit + 1, ScoredCommodity.WORST_FIRST);
+        Set<Integer> seen = new HashSet<>();
+        long categoryBits = commodityColumns.categoryBits(commodity.getCategories());
+
+        for (String category : commodity.getCategories()) {
+            Iterator<RatingIndex.Entry> entries = ratingIndex.bestRated(category);
+            for (int visited = 0; visited < limit && entries.hasNext(); ) {
+                RatingIndex.Entry entry = entries.next();
+                int ordinal = entry.ordinal();
+                Commodity candidate = commodityAt(ordinal);
+                if (candidate == null || candidate == commodity)
+                    continue;
+
+                float score = SIMILAR_CATEGORY_SCORE + entry.rating();
+                if (isFull(best, limit) && score < best.peek().score())
+                    break;
+                if (seen.add(ordinal))
+                    offer(best, limit, new ScoredCommodity(candidate, ordinal, score));
+                visited++;
+            }
+        }
+
+        Iterator<RatingIndex.Entry> entries = ratingIndex.bestRated();
+        for (int visited = 0; visited < limit && entries.hasNext(); ) {
+            RatingIndex.Entry entry = entries.next();
+            int ordinal = entry.ordinal();
+            Commodity candidate = commodityAt(ordinal);
+            if (candidate == null || candidate == commodity || seen.contains(ordinal))
+                continue;
+
+            float rating = entry.rating();
+            if (isFull(best, limit) && rating + SIMILAR_CATEGORY_SCORE < best.peek().score())
+                break;
+            if (shareCategory(commodity, categoryBits, candidate, ordinal))
+                continue;
+            if (isFull(best, limit) && rating < best.peek().score())
+                break;
+            offer(best, limit, new ScoredCommodity(candidate, ordinal, rating));
+            visited++;
+        }
+
+        List<ScoredCommodity> ranked = new ArrayList<>(best);
+        ranked.sort(ScoredCommodity.WORST_FIRST.reversed());
+        List<Commodity> result = new ArrayList<>(ranked.size());
+        for (ScoredCommodity scored : ranked)
+            result.add(scored.commodity());
+
+        return result;
+    }
+
+    // Keyset pagination: a cursor holds the sort key of the last item returned,
+    // so a page costs the same wherever it starts and nothing else is copied.
+    // Cursors are opaque to clients and IllegalArgumentException marks a bad one.
+    public Page<Commodity> pageCommodities(CommodityOrder order, String cursor, int limit) {
+        if (limit < 1)
+            throw new IllegalArgumentException("limit must be positive.");
+
+        return order == CommodityOrder.RATING ? pageCommoditiesByRating(cursor, limit) : pageCommoditiesById(cursor, limit);
+    }
+
+    private Page<Commodity> pageCommoditiesById(String cursor, int limit) {
+        NavigableMap<String, Commodity> remaining = cursor == null ?
+                commoditiesInIdOrder : commoditiesInIdOrder.tailMap(decodeCursor(cursor), false);
+        List<Commodity> items = new ArrayList<>(limit);
+        Iterator<Commodity> iterator = remaining.values().iterator();
+        while (items.size() < limit && iterator.hasNext())
+            items.add(iterator.next());
+
+        String nextCursor = iterator.hasNext() ? encodeCursor(items.get(items.size() - 1).getId()) : null;
+        return new Page<>(items, nextCursor);
+    }
+
+    private Page<Commodity> pageCommoditiesByRating(String cursor, int limit) {
+        RatingIndex.Entry after = null;
+        if (cursor != null) {
+            String[] position = decodeCursor(cursor).split(":");
+            if (position.length != 2)
+                throw new IllegalArgumentException("Malformed cursor.");
+            after = new RatingIndex.Entry(Float.parseFloat(position[0]), Integer.parseInt(position[1]));
+        }
+
+        List<Commodity> items = new ArrayList<>(limit);
+        Iterator<RatingIndex.Entry> iterator = ratingIndex.bestRatedAfter(after);
+        RatingIndex.Entry last = null;
+        while (items.size() < limit && iterator.hasNext()) {
+            RatingIndex.Entry entry = iterator.next();
+            Commodity commodity = commodityAt(entry.ordinal());
+            if (commodity == null)
+                continue;
+
+            items.add(commodity);
+            last = entry;
+        }
+
+        String nextCursor = last != null && iterator.hasNext() ? encodeCursor(last.rating() + ":" + last.ordinal()) : null;
+        return new Page<>(items, nextCursor);
+    }
+
+    // Comments of a commodity in id order, which is the order they were posted in.
+    public Page<Comment> pageCommentsByCommodity(int commodityId, String cursor, int limit) {
+        if (limit < 1)
+            throw new IllegalArgumentException("limit must be positive.");
+
+        int afterId = cursor == null ? -1 : Integer.parseInt(decodeCursor(cursor));
+        List<Comment> items = commentStore.findByCommodity(commodityId, afterId, limit + 1);
+        if (items.size() <= limit)
+            return new Page<>(items, null);
+
+        items = new ArrayList<>(items.subList(0, limit));
+        return new Page<>(items, encodeCursor(String.valueOf(items.get(limit - 1).getId())));
+    }
+
+    private static String encodeCursor(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    // Reads the other commodity's categories and rating from the columns when it is stored.
+    public static float similarityScore(Commodity commodity, Commodity other) {
+        int ordinal = instance.storedOrdinal(other);
+        if (ordinal < 0) {
+            boolean similar = !Collections.disjoint(commodity.getCategories(), other.getCategories());
+            return (similar ? SIMILAR_CATEGORY_SCORE : 0) + other.getRating();
+        }
+
+        CommodityColumns columns = instance.commodityColumns;
+        long categoryBits = columns.categoryBits(commodity.getCategories());
+        boolean similar = instance.shareCategory(commodity, categoryBits, other, ordinal);
+        return (similar ? SIMILAR_CATEGORY_SCORE : 0) + columns.getRating(ordinal);
+    }
+
+    private boolean shareCategory(Commodity commodity, long categoryBits, Commodity candidate, int ordinal) {
+        Boolean shared = CommodityColumns.shareCategory(categoryBits, commodityColumns.getCategoryBits(ordinal));
+        return shared != null ? shared : !Collections.disjoint(commodity.getCategories(), candidate.getCategories());
+    }
+
+    // The ordinal of the commodity if it is the one stored under its id, else -1.
+    private int storedOrdinal(Commodity commodity) {
+        Integer ordinal = commodity.getId() == null ? null : commodityOrdinals.get(commodity.getId());
+        return ordinal != null && commodityAt(ordinal) == commodity ? ordinal : -1;
+    }
+
+    // Total price of a buy list given as ordinals and quantities interleaved.
+    // Ordinals with no stored commodity count nothing.
+    public float totalPrice(int[] items) {
+        float total = 0;
+        for (int i = 0; i < items.length; i += 2)
+            if (commodityAt(items[i]) != null)
+                total += commodityColumns.getPrice(items[i]) * items[i + 1];
+
+        return total;
+    }
+
+    // Takes each quantity out of stock, or none of them. Returns the ordinals and
+    // quantities taken, skipping ordinals with no stored commodity, or null if
+    // one of them is short. The update goes through the commodity so its version
+    // moves, and its compare-and-set runs on the stock column.
+    public int[] takeStock(int[] items) {
+        int[] taken = new int[items.length];
+        int size = 0;
+        for (int i = 0; i < items.length; i += 2) {
+            Commodity commodity = commodityAt(items[i]);
+            if (commodity == null)
+                continue;
+            if (!commodity.tryUpdateInStock(-items[i + 1])) {
+                returnStock(Arrays.copyOf(taken, size));
+                return null;
+            }
+            taken[size++] = items[i];
+            taken[size++] = items[i + 1];
+        }
+
+        return Arrays.copyOf(taken, size);
+    }
+
+    public void returnStock(int[] items) {
+        for (int i = 0; i < items.length; i += 2) {
+            Commodity commodity = commodityAt(items[i]);
+            if (commodity != null)
+                commodity.tryUpdateInStock(items[i + 1]);
+        }
+    }
+
+    public int commodityStock(int ordinal) {
+        return commodityColumns.getInStock(ordinal);
+    }
+
+    public String commodityId(int ordinal) {
+        return commoditySlots.get(ordinal).id;
+    }
+
+    private static final class CommoditySlot {
+        private final String id;
+        private volatile Commodity commodity;
+
+        private CommoditySlot(String id) {
+            this.id = id;
+        }
+    }
+
+    private record ScoredCommodity(Commodity commodity, int ordinal, float score) {
+        private static final Comparator<ScoredCommodity> WORST_FIRST = Comparator
+                .comparingDouble(ScoredCommodity::score).thenComparing(ScoredCommodity::ordinal, Comparator.reverseOrder());
+    }
+
+    private static boolean isFull(PriorityQueue<ScoredCommodity> best, int limit) {
+        return best.size() >= limit;
+    }
+
+    private static void offer(PriorityQueue<ScoredCommodity> best, int limit, ScoredCommodity scored) {
+        best.add(scored);
+        if (best.size() > limit)
+            best.poll();
+    }
+
+    public int commodityOrdinal(String commodityId) {
+        return commodityOrdinals.computeIfAbsent(commodityId, id -> commoditySlots.add(new CommoditySlot(id)));
+    }
+
+    // The stored commodity with the ordinal, or null.
+    private Commodity commodityAt(int ordinal) {
+        return ordinal >= 0 && ordinal < commoditySlots.size() ? commoditySlots.get(ordinal).commodity : null;
+    }
+
+    public Commodity findCommodity(String commodityId) {
+        return commodityId == null ? null : commoditiesById.get(commodityId);
+    }
+
+    public Comment findComment(int commentId) {
+        return commentStore.find(commentId);
+    }
+
+    public List<Comment> findCommentsByCommodity(int commodityId) {
+        return commentStore.findByCommodity(commodityId);
+    }
+
+    private static CommentStore createCommentStore() {
+        if (!Settings.COMMENT_SEGMENTS)
+            return new HeapCommentStore();
+
+        try {
+            return new SegmentedCommentStore(Paths.get(Settings.COMMENT_SEGMENTS_PATH), Settings.COMMENT_CACHED_SEGMENTS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
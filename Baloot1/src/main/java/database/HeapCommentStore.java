@@ -0,0 +1,70 @@
+package database;
+
+import model.Comment;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+public class HeapCommentStore implements CommentStore {
+    private volatile AppendOnlyList<Comment> comments = new AppendOnlyList<>();
+    private final Map<Integer, Comment> commentsById = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentSkipListMap<Integer, Comment>> commentsByCommodity = new ConcurrentHashMap<>();
+
+    @Override
+    public void clear() {
+        comments = new AppendOnlyList<>();
+        commentsById.clear();
+        commentsByCommodity.clear();
+    }
+
+    @Override
+    public void add(Comment comment) {
+        comments.add(comment);
+        commentsById.putIfAbsent(comment.getId(), comment);
+        commentsByCommodity.computeIfAbsent(comment.getCommodityId(), k -> new ConcurrentSkipListMap<>())
+                .putIfAbsent(comment.getId(), comment);
+    }
+
+    @Override
+    public Comment update(int commentId, Consumer<Comment> mutation) {
+        Comment comment = commentsById.get(commentId);
+        if (comment != null)
+            mutation.accept(comment);
+
+        return comment;
+    }
+
+    @Override
+    public Comment find(int commentId) {
+        return commentsById.get(commentId);
+    }
+
+    @Override
+    public List<Comment> findByCommodity(int commodityId) {
+        ConcurrentSkipListMap<Integer, Comment> result = commentsByCommodity.get(commodityId);
+        return result == null ? List.of() : new ArrayList<>(result.values());
+    }
+
+    @Override
+    public List<Comment> findByCommodity(int commodityId, int afterId, int limit) {
+        ConcurrentSkipListMap<Integer, Comment> result = commentsByCommodity.get(commodityId);
+        if (result == null)
+            return List.of();
+
+        List<Comment> page = new ArrayList<>(limit);
+        for (Iterator<Comment> iterator = result.tailMap(afterId, false).values().iterator(); page.size() < limit && iterator.hasNext(); )
+            page.add(iterator.next());
+
+        return page;
+    }
+
+    @Override
+    public ArrayList<Comment> getAll() {
+        return comments.toArrayList();
+    }
+}
@@ -0,0 +1,338 @@
+package database;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Append-only, group-committed log of JournalRecords, one JSON document per line.
+// A single writer thread drains every pending append, writes them together and
+// forces the file once per batch.
+@Slf4j
+public class Journal implements Closeable {
+    private static final int REPLAY_CHUNK = 64 * 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Path path;
+    private final int compactionThreshold;
+    private final int maxBatch;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    private FileChannel channel;
+    private long lastLsn;
+    private long truncateUpTo;
+    private int appendedSinceCompaction;
+    private volatile boolean closed;
+
+    private record Pending(List<JournalRecord> records, CompletableFuture<Void> committed) {
+    }
+
+    private Journal(Path path, int compactionThreshold, int maxBatch) {
+        this.path = path;
+        this.compactionThreshold = compactionThreshold;
+        this.maxBatch = maxBatch;
+        this.writer = new Thread(this::writeLoop, "baloot-journal");
+        this.writer.setDaemon(true);
+    }
+
+    public static Journal open(Path path, int compactionThreshold, int maxBatch, Consumer<JournalRecord> replayer)
+            throws IOException {
+        return open(path, compactionThreshold, maxBatch, 0, replayer);
+    }
+
+    // Records up to baseLsn are already covered by a snapshot: they are skipped
+    // on replay, dropped at the next compaction and never handed out again.
+    public static Journal open(Path path, int compactionThreshold, int maxBatch, long baseLsn,
+                               Consumer<JournalRecord> replayer) throws IOException {
+        Journal journal = new Journal(path, compactionThreshold, maxBatch);
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+
+        journal.lastLsn = Math.max(baseLsn, readBaseLsn(path));
+        journal.truncateUpTo = baseLsn;
+        long validLength = journal.replay(record -> {
+            if (record.getLsn() > baseLsn)
+                replayer.accept(record);
+        });
+        journal.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        journal.channel.truncate(validLength);
+        journal.channel.position(validLength);
+        journal.writer.start();
+        return journal;
+    }
+
+    // The last LSN a compaction has dropped, 0 if none has. Whatever loads state
+    // before replaying must already cover every record up to it.
+    public static long readBaseLsn(Path path) throws IOException {
+        Path base = basePath(path);
+        if (!Files.exists(base))
+            return 0;
+
+        try {
+            return Long.parseLong(Files.readString(base).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Unreadable journal base LSN in " + base + ".", e);
+        }
+    }
+
+    private static Path basePath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".base");
+    }
+
+    // Written before the records are dropped, so a crash in between only leaves
+    // the base ahead of a journal that still has them.
+    private void writeBaseLsn(long lsn) throws IOException {
+        if (lsn <= readBaseLsn(path))
+            return;
+
+        Path base = basePath(path);
+        Path written = base.resolveSibling(base.getFileName() + ".tmp");
+        Files.writeString(written, Long.toString(lsn));
+        try (FileChannel writtenChannel = FileChannel.open(written, StandardOpenOption.WRITE)) {
+            writtenChannel.force(true);
+        }
+        Files.move(written, base, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getLastLsn() {
+        synchronized (queue) {
+            return lastLsn;
+        }
+    }
+
+    // The supplier runs while appends are serialized, so whatever state it reads
+    // is ordered exactly like the LSNs it is given.
+    public CompletableFuture<Void> append(Supplier<List<JournalRecord>> records) {
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        synchronized (queue) {
+            if (closed) {
+                committed.completeExceptionally(new IllegalStateException("Journal is closed."));
+                return committed;
+            }
+
+            List<JournalRecord> batch = records.get();
+            for (JournalRecord record : batch)
+                record.setLsn(++lastLsn);
+            queue.add(new Pending(batch, committed));
+        }
+
+        return committed;
+    }
+
+    public void commit(Supplier<List<JournalRecord>> records) {
+        append(records).join();
+    }
+
+    // Drops every record up to and including lsn at the next compaction, which
+    // is scheduled right away. Used once a snapshot covers those records.
+    public void truncate(long lsn) {
+        synchronized (queue) {
+            truncateUpTo = Math.max(truncateUpTo, lsn);
+            appendedSinceCompaction = compactionThreshold;
+        }
+        append(List::of).join();
+    }
+
+    @Override
+    public void close() {
+        synchronized (queue) {
+            if (closed)
+                return;
+            closed = true;
+            queue.add(new Pending(null, new CompletableFuture<>()));
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+
+            boolean stop = batch.removeIf(pending -> pending.records() == null);
+            try {
+                write(batch);
+                for (Pending pending : batch)
+                    pending.committed().complete(null);
+            } catch (IOException e) {
+                for (Pending pending : batch)
+                    pending.committed().completeExceptionally(new UncheckedIOException(e));
+            }
+            if (shouldCompact(batch))
+                compactQuietly();
+            batch.clear();
+
+            if (stop) {
+                closeChannel();
+                return;
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Pending pending : batch) {
+            for (JournalRecord record : pending.records()) {
+                buffer.write(objectMapper.writeValueAsBytes(record));
+                buffer.write('\n');
+            }
+        }
+        if (buffer.size() == 0)
+            return;
+
+        long start = channel.position();
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        try {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+            channel.force(false);
+        } catch (IOException e) {
+            channel.truncate(start);
+            channel.position(start);
+            throw e;
+        }
+    }
+
+    private boolean shouldCompact(List<Pending> batch) {
+        synchronized (queue) {
+            for (Pending pending : batch)
+                appendedSinceCompaction += pending.records().size();
+            if (appendedSinceCompaction < compactionThreshold)
+                return false;
+
+            appendedSinceCompaction = 0;
+            return true;
+        }
+    }
+
+    // A failed compaction leaves the current file in place and appends carry on.
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            log.error("Could not compact the journal at {}", path, e);
+            try {
+                if (!channel.isOpen()) {
+                    channel = FileChannel.open(path, StandardOpenOption.WRITE);
+                    channel.position(channel.size());
+                }
+            } catch (IOException reopenFailure) {
+                throw new UncheckedIOException(reopenFailure);
+            }
+        }
+    }
+
+    // Keeps only the newest record per key. Records are absolute values, so the
+    // newest one alone reproduces the state of every older one.
+    private void compact() throws IOException {
+        long dropUpTo;
+        synchronized (queue) {
+            dropUpTo = truncateUpTo;
+        }
+
+        Map<String, JournalRecord> latest = new HashMap<>();
+        replay(record -> {
+            if (record.getLsn() > dropUpTo)
+                latest.put(record.getKey(), record);
+        });
+        List<JournalRecord> records = new ArrayList<>(latest.values());
+        records.sort(Comparator.comparingLong(JournalRecord::getLsn));
+
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(compacted))) {
+            for (JournalRecord record : records) {
+                out.write(objectMapper.writeValueAsBytes(record));
+                out.write('\n');
+            }
+        }
+        try (FileChannel compactedChannel = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+            compactedChannel.force(true);
+        }
+
+        writeBaseLsn(dropUpTo);
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    // Returns the length of the valid prefix. Only a torn last line, one a crash
+    // cut off before its newline, is ignored; any other record that cannot be
+    // read fails the replay rather than dropping everything written after it.
+    private long replay(Consumer<JournalRecord> replayer) throws IOException {
+        if (!Files.exists(path))
+            return 0;
+
+        long validLength = 0;
+        byte[] chunk = new byte[REPLAY_CHUNK];
+        ByteArrayOutputStream carried = new ByteArrayOutputStream();
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                int lineStart = 0;
+                for (int i = 0; i < read; i++) {
+                    if (chunk[i] != '\n')
+                        continue;
+
+                    JournalRecord record;
+                    int lineLength;
+                    if (carried.size() == 0) {
+                        lineLength = i - lineStart;
+                        record = parse(chunk, lineStart, lineLength, validLength);
+                    } else {
+                        carried.write(chunk, lineStart, i - lineStart);
+                        lineLength = carried.size();
+                        record = parse(carried.toByteArray(), 0, lineLength, validLength);
+                        carried.reset();
+                    }
+                    validLength += lineLength + 1;
+                    lineStart = i + 1;
+                    synchronized (queue) {
+                        lastLsn = Math.max(lastLsn, record.getLsn());
+                    }
+                    replayer.accept(record);
+                }
+                carried.write(chunk, lineStart, read - lineStart);
+            }
+        }
+
+        return validLength;
+    }
+
+    private JournalRecord parse(byte[] bytes, int offset, int length, long position) throws IOException {
+        try {
+            return objectMapper.readValue(bytes, offset, length, JournalRecord.class);
+        } catch (IOException e) {
+            throw new IOException("Unreadable journal record at byte " + position + " of " + path + ".", e);
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
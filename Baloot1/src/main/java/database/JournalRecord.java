@@ -0,0 +1,102 @@
+package database;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import model.Comment;
+import model.User;
+
+import java.util.Map;
+
+// Records carry the value an entity field had when the record was appended,
+// not a delta, so replaying a record twice or after a newer snapshot is harmless.
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalRecord {
+    public enum Type {
+        USER, COMMENT, CREDIT, PURCHASED, STOCK, RATE, VOTE
+    }
+
+    private long lsn;
+    private Type type;
+    private String username;
+    private String commodityId;
+    private Integer commentId;
+    private Float credit;
+    private Integer stock;
+    private Integer score;
+    private String vote;
+    private Map<String, Integer> items;
+    private User user;
+    private Comment comment;
+
+    private JournalRecord(Type type) {
+        this.type = type;
+    }
+
+    public static JournalRecord user(User user) {
+        JournalRecord record = new JournalRecord(Type.USER);
+        record.username = user.getUsername();
+        record.user = user;
+        return record;
+    }
+
+    public static JournalRecord comment(Comment comment) {
+        JournalRecord record = new JournalRecord(Type.COMMENT);
+        record.commentId = comment.getId();
+        record.comment = comment;
+        return record;
+    }
+
+    public static JournalRecord credit(String username, float credit) {
+        JournalRecord record = new JournalRecord(Type.CREDIT);
+        record.username = username;
+        record.credit = credit;
+        return record;
+    }
+
+    public static JournalRecord purchased(String username, Map<String, Integer> items) {
+        JournalRecord record = new JournalRecord(Type.PURCHASED);
+        record.username = username;
+        record.items = items;
+        return record;
+    }
+
+    public static JournalRecord stock(String commodityId, int stock) {
+        JournalRecord record = new JournalRecord(Type.STOCK);
+        record.commodityId = commodityId;
+        record.stock = stock;
+        return record;
+    }
+
+    public static JournalRecord rate(String commodityId, String username, int score) {
+        JournalRecord record = new JournalRecord(Type.RATE);
+        record.commodityId = commodityId;
+        record.username = username;
+        record.score = score;
+        return record;
+    }
+
+    public static JournalRecord vote(int commentId, String username, String vote) {
+        JournalRecord record = new JournalRecord(Type.VOTE);
+        record.commentId = commentId;
+        record.username = username;
+        record.vote = vote;
+        return record;
+    }
+
+    @JsonIgnore
+    public String getKey() {
+        return switch (type) {
+            case USER, CREDIT, PURCHASED -> type + ":" + username;
+            case COMMENT -> type + ":" + commentId;
+            case STOCK -> type + ":" + commodityId;
+            case RATE -> type + ":" + commodityId + ":" + username;
+            case VOTE -> type + ":" + commentId + ":" + username;
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package database;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class NameIndex {
+    public static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(int ordinal, String name) {
+        if (name == null)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i + GRAM_LENGTH <= name.length(); i++)
+                postings.computeIfAbsent(gram(name, i), k -> new Postings()).add(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean canAnswer(String query) {
+        return query != null && query.length() >= GRAM_LENGTH;
+    }
+
+    public int[] candidates(String query) {
+        lock.readLock().lock();
+        try {
+            int gramCount = query.length() - GRAM_LENGTH + 1;
+            Postings[] lists = new Postings[gramCount];
+            for (int i = 0; i < gramCount; i++) {
+                Postings list = postings.get(gram(query, i));
+                if (list == null)
+                    return new int[0];
+                lists[i] = list;
+            }
+
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            int[] result = Arrays.copyOf(lists[0].ordinals, lists[0].size);
+            int size = result.length;
+            for (int i = 1; i < lists.length && size > 0; i++)
+                size = intersect(result, size, lists[i]);
+
+            return Arrays.copyOf(result, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int intersect(int[] result, int size, Postings other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size && j < other.size; ) {
+            if (result[i] < other.ordinals[j])
+                i++;
+            else if (result[i] > other.ordinals[j])
+                j++;
+            else {
+                result[kept++] = result[i++];
+                j++;
+            }
+        }
+
+        return kept;
+    }
+
+    private static long gram(String text, int start) {
+        long key = 0;
+        for (int i = start; i < start + GRAM_LENGTH; i++)
+            key = (key << 16) | text.charAt(i);
+
+        return key;
+    }
+
+    private static class Postings {
+        private int[] ordinals = new int[2];
+        private int size;
+
+        // Kept sorted for intersect. Ordinals mostly arrive in increasing order,
+        // so the search only runs when one does not.
+        private void add(int ordinal) {
+            int position = size;
+            if (size > 0 && ordinals[size - 1] >= ordinal) {
+                position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+                if (position >= 0)
+                    return;
+                position = -position - 1;
+            }
+            if (size == ordinals.length)
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+
+            System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+            ordinals[position] = ordinal;
+            size++;
+        }
+    }
+}
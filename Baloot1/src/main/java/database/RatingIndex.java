@@ -0,0 +1,60 @@
+package database;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Commodity ordinals kept sorted by rating, best first, overall and per category.
+// Readers iterate without locking; a rating change removes the old entry before
+// adding the new one, so a reader may briefly miss that commodity. Callers
+// serialize updates of the same ordinal and run clear alone, so the index does
+// no locking of its own.
+public class RatingIndex {
+    public record Entry(float rating, int ordinal) {
+    }
+
+    private static final Comparator<Entry> BEST_FIRST =
+            Comparator.comparingDouble((Entry entry) -> -entry.rating()).thenComparingInt(Entry::ordinal);
+
+    private final ConcurrentSkipListSet<Entry> all = new ConcurrentSkipListSet<>(BEST_FIRST);
+    private final Map<String, ConcurrentSkipListSet<Entry>> byCategory = new ConcurrentHashMap<>();
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    public void update(int ordinal, Collection<String> categories, float rating) {
+        Entry entry = new Entry(rating, ordinal);
+        Entry previous = entries.put(ordinal, entry);
+        if (entry.equals(previous))
+            return;
+        if (previous != null)
+            all.remove(previous);
+        all.add(entry);
+
+        for (String category : categories) {
+            ConcurrentSkipListSet<Entry> ranked = byCategory.computeIfAbsent(category,
+                    k -> new ConcurrentSkipListSet<>(BEST_FIRST));
+            if (previous != null)
+                ranked.remove(previous);
+            ranked.add(entry);
+        }
+    }
+
+    public void clear() {
+        all.clear();
+        byCategory.clear();
+        entries.clear();
+    }
+
+    public Iterator<Entry> bestRated() {
+        return all.iterator();
+    }
+
+    public Iterator<Entry> bestRated(String category) {
+        ConcurrentSkipListSet<Entry> ranked = byCategory.get(category);
+        return ranked == null ? Collections.emptyIterator() : ranked.iterator();
+    }
+
+    // Entries ranked below after, or every entry if after is null.
+    public Iterator<Entry> bestRatedAfter(Entry after) {
+        return after == null ? all.iterator() : all.tailSet(after, false).iterator();
+    }
+}
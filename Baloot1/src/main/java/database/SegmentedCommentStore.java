@@ -0,0 +1,365 @@
+package database;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import model.Comment;
+import utils.IntIntMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Keeps comments on disk, one segment per commodity, and only the most recently
+// used segments in memory. A segment is a list of extents in the backing file,
+// each a JSON array of comments. A bulk load writes a segment as one extent per
+// batch it has comments in; a new comment for an uncached commodity is appended as an extent of
+// its own, and a segment read from several extents, or changed while cached, is
+// rewritten as a single extent when it is evicted. Extents a rewrite replaces
+// go back to a free list that later writes reuse.
+//
+// Each segment is locked on its own, so only work on the same commodity waits.
+// Eviction follows the clock algorithm and runs with no segment lock held.
+// The file is scratch space rebuilt on every start: durability still comes
+// from the journal and the snapshot.
+public class SegmentedCommentStore implements CommentStore {
+    private static final int NO_COMMODITY = IntIntMap.EMPTY;
+    private static final int LOAD_BATCH = 4096;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final FileChannel channel;
+    private final int cachedSegments;
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final IntIntMap commodityByCommentId = new IntIntMap();
+    private final Queue<Segment> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger cachedCount = new AtomicInteger();
+    // Free extents of the file by offset, merged with their neighbours. Guards end.
+    private final TreeMap<Long, Long> free = new TreeMap<>();
+    private long end;
+
+    private record Extent(long offset, int length) {
+    }
+
+    // Guarded by its own monitor, except for referenced.
+    private static class Segment {
+        private List<Extent> extents = new ArrayList<>(1);
+        private List<Comment> comments;
+        private boolean dirty;
+        private volatile boolean referenced;
+    }
+
+    public SegmentedCommentStore(Path path, int cachedSegments) throws IOException {
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.cachedSegments = cachedSegments;
+    }
+
+    @Override
+    public void clear() {
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.clear();
+        commodityByCommentId.clear();
+        clock.clear();
+        cachedCount.set(0);
+        synchronized (free) {
+            free.clear();
+            end = 0;
+        }
+    }
+
+    // Takes the comments in batches as the loader hands them over and writes
+    // each batch as one sequential write, grouped by commodity into one extent
+    // per segment, so only the current batch is held in memory.
+    @Override
+    public void load(Database.Loader<Comment> loader) throws IOException {
+        clear();
+        Map<Integer, List<Comment>> batch = new HashMap<>();
+        AtomicInteger batched = new AtomicInteger();
+        try {
+            loader.load(comment -> {
+                if (commodityByCommentId.containsKey(comment.getId()))
+                    return;
+
+                commodityByCommentId.put(comment.getId(), comment.getCommodityId());
+                batch.computeIfAbsent(comment.getCommodityId(), k -> new ArrayList<>()).add(comment);
+                if (batched.incrementAndGet() >= LOAD_BATCH) {
+                    flush(batch);
+                    batched.set(0);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        flush(batch);
+    }
+
+    // Appends an extent per commodity of the batch to its segment and empties it.
+    private void flush(Map<Integer, List<Comment>> batch) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            long offset;
+            synchronized (free) {
+                offset = end;
+            }
+            for (Map.Entry<Integer, List<Comment>> entry : batch.entrySet()) {
+                byte[] bytes = objectMapper.writeValueAsBytes(entry.getValue());
+                segments.computeIfAbsent(entry.getKey(), k -> new Segment())
+                        .extents.add(new Extent(offset + buffer.size(), bytes.length));
+                buffer.write(bytes);
+            }
+            int written = write(buffer.toByteArray(), offset);
+            synchronized (free) {
+                end = offset + written;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        batch.clear();
+    }
+
+    @Override
+    public void add(Comment comment) {
+        int id = comment.getId();
+        if (commodityByCommentId.containsKey(id))
+            return;
+
+        Segment segment = segments.computeIfAbsent(comment.getCommodityId(), k -> new Segment());
+        synchronized (segment) {
+            if (segment.comments != null) {
+                segment.comments.add(comment);
+                segment.dirty = true;
+                segment.referenced = true;
+            } else
+                segment.extents.add(append(List.of(comment)));
+        }
+        commodityByCommentId.put(id, comment.getCommodityId());
+    }
+
+    // Mutates the cached copy under the segment lock, so an eviction cannot slip
+    // in between and leave two concurrent updates working on different copies.
+    @Override
+    public Comment update(int commentId, Consumer<Comment> mutation) {
+        int commodityId = commodityByCommentId.get(commentId, NO_COMMODITY);
+        if (commodityId == NO_COMMODITY)
+            return null;
+
+        return withSegment(commodityId, segment -> {
+            for (Comment comment : segment.comments) {
+                if (comment.getId() == commentId) {
+                    mutation.accept(comment);
+                    segment.dirty = true;
+                    return comment;
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Comment find(int commentId) {
+        int commodityId = commodityByCommentId.get(commentId, NO_COMMODITY);
+        if (commodityId == NO_COMMODITY)
+            return null;
+
+        return withSegment(commodityId, segment -> {
+            for (Comment comment : segment.comments)
+                if (comment.getId() == commentId)
+                    return comment;
+
+            return null;
+        });
+    }
+
+    @Override
+    public List<Comment> findByCommodity(int commodityId) {
+        List<Comment> comments = withSegment(commodityId, segment -> new ArrayList<>(segment.comments));
+        return comments == null ? List.of() : comments;
+    }
+
+    @Override
+    public List<Comment> findByCommodity(int commodityId, int afterId, int limit) {
+        List<Comment> page = withSegment(commodityId, segment -> {
+            PriorityQueue<Comment> firstIds = new PriorityQueue<>(Comparator.comparingInt(Comment::getId).reversed());
+            for (Comment comment : segment.comments) {
+                if (comment.getId() <= afterId)
+                    continue;
+
+                firstIds.add(comment);
+                if (firstIds.size() > limit)
+                    firstIds.poll();
+            }
+
+            return new ArrayList<>(firstIds);
+        });
+        if (page == null)
+            return List.of();
+
+        page.sort(Comparator.comparingInt(Comment::getId));
+        return page;
+    }
+
+    // Reads every segment without caching it, for snapshots.
+    @Override
+    public ArrayList<Comment> getAll() {
+        ArrayList<Comment> comments = new ArrayList<>(commodityByCommentId.size());
+        for (Segment segment : segments.values()) {
+            synchronized (segment) {
+                comments.addAll(segment.comments != null ? segment.comments : read(segment.extents));
+            }
+        }
+
+        comments.sort(Comparator.comparingInt(Comment::getId));
+        return comments;
+    }
+
+    // Runs action on the commodity's segment under its lock, with the comments
+    // loaded. Null if the commodity has none.
+    private <T> T withSegment(int commodityId, Function<Segment, T> action) {
+        Segment segment = segments.get(commodityId);
+        if (segment == null)
+            return null;
+
+        T result;
+        boolean loaded = false;
+        synchronized (segment) {
+            if (segment.comments == null) {
+                segment.comments = read(segment.extents);
+                segment.dirty = segment.extents.size() > 1;
+                loaded = true;
+            }
+            segment.referenced = true;
+            result = action.apply(segment);
+        }
+        if (loaded) {
+            clock.add(segment);
+            if (cachedCount.incrementAndGet() > cachedSegments)
+                evictOne();
+        }
+
+        return result;
+    }
+
+    // Skips, and clears, segments used since the hand last passed them.
+    private void evictOne() {
+        Segment segment;
+        while ((segment = clock.poll()) != null) {
+            synchronized (segment) {
+                if (segment.referenced) {
+                    segment.referenced = false;
+                    clock.add(segment);
+                    continue;
+                }
+                if (segment.dirty)
+                    rewrite(segment);
+                segment.comments = null;
+                segment.dirty = false;
+            }
+            cachedCount.decrementAndGet();
+            return;
+        }
+    }
+
+    private List<Comment> read(List<Extent> segmentExtents) {
+        List<Comment> comments = new ArrayList<>();
+        try {
+            for (Extent extent : segmentExtents) {
+                ByteBuffer bytes = ByteBuffer.allocate(extent.length());
+                while (bytes.hasRemaining())
+                    if (channel.read(bytes, extent.offset() + bytes.position()) < 0)
+                        throw new IOException("Comment segment ends early.");
+                comments.addAll(Arrays.asList(objectMapper.readValue(bytes.array(), Comment[].class)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return comments;
+    }
+
+    // Called with the segment locked, so nobody reads the old extents once freed.
+    private void rewrite(Segment segment) {
+        Extent extent = append(segment.comments);
+        for (Extent old : segment.extents)
+            release(old);
+        segment.extents = new ArrayList<>(1);
+        segment.extents.add(extent);
+    }
+
+    private Extent append(List<Comment> comments) {
+        try {
+            byte[] bytes = objectMapper.writeValueAsBytes(comments);
+            Extent extent = allocate(bytes.length);
+            write(bytes, extent.offset());
+            return extent;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int write(byte[] bytes, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining())
+            channel.write(buffer, offset + buffer.position());
+
+        return bytes.length;
+    }
+
+    // First fit among the free extents, else the end of the file.
+    private Extent allocate(int length) {
+        synchronized (free) {
+            for (Map.Entry<Long, Long> hole : free.entrySet()) {
+                if (hole.getValue() < length)
+                    continue;
+
+                long offset = hole.getKey();
+                long remaining = hole.getValue() - length;
+                free.remove(offset);
+                if (remaining > 0)
+                    free.put(offset + length, remaining);
+                return new Extent(offset, length);
+            }
+
+            long offset = end;
+            end += length;
+            return new Extent(offset, length);
+        }
+    }
+
+    private void release(Extent extent) {
+        synchronized (free) {
+            long offset = extent.offset();
+            long length = extent.length();
+            Map.Entry<Long, Long> before = free.floorEntry(offset);
+            if (before != null && before.getKey() + before.getValue() == offset) {
+                free.remove(before.getKey());
+                offset = before.getKey();
+                length += before.getValue();
+            }
+            Long after = free.remove(offset + length);
+            if (after != null)
+                length += after;
+
+            if (offset + length == end)
+                end = offset;
+            else
+                free.put(offset, length);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.Provider;
+import model.User;
+import model.Vote;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+// Binary image of the whole Database. Layout:
+//   header   magic, version, journal LSN covered by the snapshot
+//   tables   users, providers, commodities, comments; each one is a row count,
+//            one primitive column per scalar field (strings as string table
+//            indexes, -1 for null), then one length-prefixed record per row
+//            holding its collections
+//   strings  count, then every distinct string as (length, UTF-8 bytes)
+//   trailer  offset of the string table
+// The string table goes last so the tables are written in a single pass over
+// the live collections.
+public class Snapshot {
+    private static final int MAGIC = 0x424C5431;
+    private static final int VERSION = 1;
+
+    public static void write(Database database, long lsn, Path path) throws IOException {
+        ArrayList<User> users = database.getUsers();
+        ArrayList<Provider> providers = database.getProviders();
+        ArrayList<Commodity> commodities = database.getCommodities();
+        ArrayList<Comment> comments = database.getComments();
+        StringTable strings = new StringTable();
+
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+
+            out.writeInt(users.size());
+            writeStrings(out, strings, users, User::getUsername);
+            writeStrings(out, strings, users, User::getPassword);
+            writeStrings(out, strings, users, User::getEmail);
+            writeStrings(out, strings, users, User::getBirthDate);
+            writeStrings(out, strings, users, User::getAddress);
+            for (User user : users)
+                out.writeFloat(user.getCredit());
+            for (User user : users) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream record = new DataOutputStream(bytes);
+                List<Map.Entry<Integer, Integer>> rates = new ArrayList<>(user.getCommoditiesRates().entrySet());
+                record.writeInt(rates.size());
+                for (var entry : rates) {
+                    record.writeInt(entry.getKey());
+                    record.writeInt(entry.getValue());
+                }
+                writeQuantities(record, strings, user.getBuyList());
+                writeQuantities(record, strings, user.getPurchasedList());
+                writeRecord(out, bytes);
+            }
+
+            out.writeInt(providers.size());
+            writeStrings(out, strings, providers, Provider::getId);
+            writeStrings(out, strings, providers, Provider::getName);
+            writeStrings(out, strings, providers, Provider::getRegistryDate);
+            writeStrings(out, strings, providers, Provider::getImage);
+
+            out.writeInt(commodities.size());
+            writeStrings(out, strings, commodities, Commodity::getId);
+            writeStrings(out, strings, commodities, Commodity::getName);
+            writeStrings(out, strings, commodities, Commodity::getProviderId);
+            writeStrings(out, strings, commodities, Commodity::getImage);
+            writeInts(out, commodities, Commodity::getPrice);
+            writeInts(out, commodities, Commodity::getInStock);
+            for (Commodity commodity : commodities)
+                out.writeFloat(commodity.getRating());
+            for (Commodity commodity : commodities)
+                out.writeFloat(commodity.getInitRate());
+            for (Commodity commodity : commodities) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream record = new DataOutputStream(bytes);
+                record.writeInt(commodity.getCategories().size());
+                for (String category : commodity.getCategories())
+                    record.writeInt(strings.indexOf(category));
+                writeQuantities(record, strings, commodity.getUserRate());
+                writeRecord(out, bytes);
+            }
+
+            out.writeInt(comments.size());
+            writeInts(out, comments, Comment::getId);
+            writeInts(out, comments, Comment::getCommodityId);
+            writeStrings(out, strings, comments, Comment::getUserEmail);
+            writeStrings(out, strings, comments, Comment::getUsername);
+            writeStrings(out, strings, comments, Comment::getText);
+            writeStrings(out, strings, comments, Comment::getDate);
+            writeInts(out, comments, Comment::getLike);
+            writeInts(out, comments, Comment::getDislike);
+            for (Comment comment : comments) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream record = new DataOutputStream(bytes);
+                List<Map.Entry<String, Vote>> votes = new ArrayList<>(comment.getUserVote().entrySet());
+                record.writeInt(votes.size());
+                for (var entry : votes) {
+                    record.writeInt(strings.indexOf(entry.getKey()));
+                    record.writeInt(strings.indexOf(entry.getValue().getValue()));
+                }
+                writeRecord(out, bytes);
+            }
+        }
+
+        long stringsOffset = Files.size(temporary);
+        try (DataOutputStream out = open(temporary, StandardOpenOption.APPEND)) {
+            strings.write(out);
+            out.writeLong(stringsOffset);
+        }
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Loads the snapshot into the database and returns the journal LSN it covers.
+    public static long load(Path path, Database database) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            throw new IOException("Unsupported snapshot format: " + path);
+        long lsn = buffer.getLong();
+        int bodyStart = buffer.position();
+
+        buffer.position((int) buffer.getLong(buffer.limit() - Long.BYTES));
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(bodyStart);
+
+        int count = buffer.getInt();
+        ArrayList<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            users.add(new User());
+        readStrings(buffer, strings, users, User::setUsername);
+        readStrings(buffer, strings, users, User::setPassword);
+        readStrings(buffer, strings, users, User::setEmail);
+        readStrings(buffer, strings, users, User::setBirthDate);
+        readStrings(buffer, strings, users, User::setAddress);
+        for (User user : users)
+            user.setCredit(buffer.getFloat());
+        for (User user : users) {
+            buffer.getInt();
+            int rateCount = buffer.getInt();
+            if (rateCount > 0) {
+                Map<Integer, Integer> rates = new HashMap<>(rateCount * 2);
+                for (int j = 0; j < rateCount; j++)
+                    rates.put(buffer.getInt(), buffer.getInt());
+                user.setCommoditiesRates(rates);
+            }
+            Map<String, Integer> buyList = readQuantities(buffer, strings);
+            if (!buyList.isEmpty())
+                user.setBuyList(buyList);
+            Map<String, Integer> purchasedList = readQuantities(buffer, strings);
+            if (!purchasedList.isEmpty())
+                user.setPurchasedList(purchasedList);
+        }
+
+        count = buffer.getInt();
+        ArrayList<Provider> providers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            providers.add(new Provider());
+        readStrings(buffer, strings, providers, Provider::setId);
+        readStrings(buffer, strings, providers, Provider::setName);
+        readStrings(buffer, strings, providers, Provider::setRegistryDate);
+        readStrings(buffer, strings, providers, Provider::setImage);
+
+        count = buffer.getInt();
+        ArrayList<Commodity> commodities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            commodities.add(new Commodity());
+        readStrings(buffer, strings, commodities, Commodity::setId);
+        readStrings(buffer, strings, commodities, Commodity::setName);
+        readStrings(buffer, strings, commodities, Commodity::setProviderId);
+        readStrings(buffer, strings, commodities, Commodity::setImage);
+        for (Commodity commodity : commodities)
+            commodity.setPrice(buffer.getInt());
+        for (Commodity commodity : commodities)
+            commodity.setInStock(buffer.getInt());
+        for (Commodity commodity : commodities)
+            commodity.setRating(buffer.getFloat());
+        for (Commodity commodity : commodities)
+            commodity.setInitRate(buffer.getFloat());
+        for (Commodity commodity : commodities) {
+            buffer.getInt();
+            int categoryCount = buffer.getInt();
+            ArrayList<String> categories = new ArrayList<>(categoryCount);
+            for (int j = 0; j < categoryCount; j++)
+                categories.add(strings[buffer.getInt()]);
+            commodity.setCategories(categories);
+            Map<String, Integer> userRate = readQuantities(buffer, strings);
+            if (!userRate.isEmpty())
+                commodity.setUserRate(userRate);
+        }
+
+        count = buffer.getInt();
+        ArrayList<Comment> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            comments.add(new Comment());
+        for (Comment comment : comments)
+            comment.setId(buffer.getInt());
+        for (Comment comment : comments)
+            comment.setCommodityId(buffer.getInt());
+        readStrings(buffer, strings, comments, Comment::setUserEmail);
+        readStrings(buffer, strings, comments, Comment::setUsername);
+        readStrings(buffer, strings, comments, Comment::setText);
+        readStrings(buffer, strings, comments, Comment::setDate);
+        for (Comment comment : comments)
+            comment.setLike(buffer.getInt());
+        for (Comment comment : comments)
+            comment.setDislike(buffer.getInt());
+        for (Comment comment : comments) {
+            buffer.getInt();
+            int voteCount = buffer.getInt();
+            if (voteCount > 0) {
+                Map<String, Vote> votes = new HashMap<>(voteCount * 2);
+                for (int j = 0; j < voteCount; j++)
+                    votes.put(strings[buffer.getInt()], Vote.fromValue(strings[buffer.getInt()]));
+                comment.setUserVote(votes);
+            }
+        }
+
+        database.setUsers(users);
+        database.setProviders(providers);
+        database.setCommodities(commodities);
+        database.setComments(comments);
+        return lsn;
+    }
+
+    private static <T> void writeStrings(DataOutputStream out, StringTable strings, List<T> rows,
+                                         Function<T, String> column) throws IOException {
+        for (T row : rows)
+            out.writeInt(strings.indexOf(column.apply(row)));
+    }
+
+    private static <T> void writeInts(DataOutputStream out, List<T> rows, ToIntFunction<T> column) throws IOException {
+        for (T row : rows)
+            out.writeInt(column.applyAsInt(row));
+    }
+
+    private static DataOutputStream open(Path path, OpenOption... options) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path, options), 1 << 16));
+    }
+
+    private static void writeQuantities(DataOutputStream out, StringTable strings, Map<String, Integer> quantities)
+            throws IOException {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        out.writeInt(entries.size());
+        for (var entry : entries) {
+            out.writeInt(strings.indexOf(entry.getKey()));
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, ByteArrayOutputStream record) throws IOException {
+        out.writeInt(record.size());
+        record.writeTo(out);
+    }
+
+    private static <T> void readStrings(ByteBuffer buffer, String[] strings, List<T> rows, Setter<T> column) {
+        for (T row : rows) {
+            int index = buffer.getInt();
+            column.set(row, index < 0 ? null : strings[index]);
+        }
+    }
+
+    private static Map<String, Integer> readQuantities(ByteBuffer buffer, String[] strings) {
+        int count = buffer.getInt();
+        if (count == 0)
+            return Collections.emptyMap();
+
+        Map<String, Integer> quantities = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++)
+            quantities.put(strings[buffer.getInt()], buffer.getInt());
+
+        return quantities;
+    }
+
+    @FunctionalInterface
+    private interface Setter<T> {
+        void set(T row, String value);
+    }
+
+    private static class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private int indexOf(String string) {
+            if (string == null)
+                return -1;
+
+            return indexes.computeIfAbsent(string, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package database;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StripedLock {
+    private final ReentrantLock[] stripes;
+
+    public StripedLock(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(stripeCount - 1, 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++)
+            stripes[i] = new ReentrantLock();
+    }
+
+    public ReentrantLock get(Object key) {
+        return stripes[indexFor(key)];
+    }
+
+    public int indexFor(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        return hash & (stripes.length - 1);
+    }
+}
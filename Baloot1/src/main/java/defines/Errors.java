@@ -6,6 +6,7 @@ public class Errors {
     public static final String COMMODITY_IS_NOT_IN_STOCK = "Commodity is not in stock.";
     public static final String MISSING_USER_ID = "User ID cannot be null.";
     public static final String MISSING_COMMODITY_ID = "Commodity ID cannot be null.";
+    public static final String MISSING_BUY_LIST_ITEMS = "Buy list items cannot be null.";
     public static final String MISSING_CREDIT_VALUE = "Credit value cannot be null.";
     public static final String MISSING_COMMENT_ID = "Comment ID cannot be null.";
     public static final String MISSING_VOTE_VALUE = "Vote value cannot be null.";
@@ -25,4 +26,6 @@ public class Errors {
     public static final String NOT_EXISTENT_USER = "User does not exist.";
     public static final String INCORRECT_PASSWORD = "Incorrect password.";
     public static final String USERNAME_ALREADY_TAKEN = "The username is already taken.";
+    public static final String TOO_MANY_EXPORTS = "Too many exports are running. Try again later.";
+    public static final String CHANGE_NOT_SAVED = "The change could not be saved. Try again later.";
 }
@@ -0,0 +1,36 @@
+package defines;
+
+public class Settings {
+    public static final boolean JOURNAL_ENABLED =
+            Boolean.parseBoolean(System.getProperty("baloot.journal.enabled", "true"));
+    public static final String JOURNAL_PATH =
+            System.getProperty("baloot.journal.path", "data/baloot.journal");
+    public static final int JOURNAL_COMPACTION_THRESHOLD =
+            Integer.getInteger("baloot.journal.compaction-threshold", 100_000);
+    public static final int JOURNAL_MAX_BATCH =
+            Integer.getInteger("baloot.journal.max-batch", 1024);
+    public static final boolean SNAPSHOT_ENABLED =
+            Boolean.parseBoolean(System.getProperty("baloot.snapshot.enabled", "true"));
+    public static final String SNAPSHOT_PATH =
+            System.getProperty("baloot.snapshot.path", "data/baloot.snapshot");
+    public static final boolean COMMENT_SEGMENTS =
+            System.getProperty("baloot.comment.storage", "heap").equals("segments");
+    public static final String COMMENT_SEGMENTS_PATH =
+            System.getProperty("baloot.comment.segments-path", "data/comments.segments");
+    public static final int COMMENT_CACHED_SEGMENTS =
+            Integer.getInteger("baloot.comment.cached-segments", 1024);
+    public static final long SUGGESTION_CACHE_TTL_MILLIS =
+            Long.getLong("baloot.suggestions.ttl-millis", 60_000);
+    public static final int COMMODITY_JSON_CACHE_SIZE =
+            Integer.getInteger("baloot.commodity-json.cache-size", 100_000);
+    public static final int MAX_PAGE_SIZE =
+            Integer.getInteger("baloot.page.max-limit", 100);
+    public static final int EXPORT_FLUSH_EVERY =
+            Integer.getInteger("baloot.export.flush-every", 256);
+    public static final long EXPORT_TIMEOUT_MILLIS =
+            Long.getLong("baloot.export.timeout-millis", 30 * 60_000);
+    public static final int EXPORT_THREADS =
+            Integer.getInteger("baloot.export.threads", 4);
+    public static final int EXPORT_QUEUE_CAPACITY =
+            Integer.getInteger("baloot.export.queue-capacity", 16);
+}
@@ -0,0 +1,9 @@
+package exceptions;
+
+import static defines.Errors.CHANGE_NOT_SAVED;
+
+public class ChangeNotSaved extends Exception {
+    public ChangeNotSaved() {
+        super(CHANGE_NOT_SAVED);
+    }
+}
@@ -0,0 +1,9 @@
+package exceptions;
+
+import static defines.Errors.MISSING_BUY_LIST_ITEMS;
+
+public class MissingBuyListItems extends Exception {
+    public MissingBuyListItems() {
+        super(MISSING_BUY_LIST_ITEMS);
+    }
+}
@@ -1,18 +1,23 @@
 package model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 @Getter
 @Setter
 @NoArgsConstructor
 public class Comment {
+    // DateTimeFormatter is immutable, so a single instance serves every thread.
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     int id;
     private String userEmail;
     private String username;
@@ -20,36 +25,76 @@ public class Comment {
     private String text;
     private String date;
 
-    private int like;
-    private int dislike;
-    private Map<String, String> userVote = new HashMap<>();
+    // Adjusted by delta on every vote; striped so a popular comment's voters do not contend.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final LongAdder like = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final LongAdder dislike = new LongAdder();
+    private Map<String, Vote> userVote = new ConcurrentHashMap<>();
 
     public Comment(int id, String userEmail, String username, int commodityId, String text) {
+        this(id, userEmail, username, commodityId, text, currentDate());
+    }
+
+    public Comment(int id, String userEmail, String username, int commodityId, String text, String date) {
         this.id = id;
         this.userEmail = userEmail;
         this.username = username;
         this.commodityId = commodityId;
         this.text = text;
-        this.date = getCurrentDate();
+        this.date = date;
+    }
+
+    public static String currentDate() {
+        return LocalDateTime.now().format(DATE_FORMAT);
     }
 
     public String getCurrentDate() {
-        Date currentDate = new Date();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        return dateFormat.format(currentDate);
+        return currentDate();
+    }
+
+    public int getLike() {
+        return like.intValue();
+    }
+
+    public void setLike(int like) {
+        this.like.reset();
+        this.like.add(like);
+    }
+
+    public int getDislike() {
+        return dislike.intValue();
+    }
+
+    public void setDislike(int dislike) {
+        this.dislike.reset();
+        this.dislike.add(dislike);
+    }
+
+    public void setUserVote(Map<String, Vote> userVote) {
+        this.userVote = new ConcurrentHashMap<>(userVote);
+        int likes = 0;
+        for (Vote vote : this.userVote.values())
+            if (vote == Vote.LIKE)
+                likes++;
+        setLike(likes);
+        setDislike(this.userVote.size() - likes);
     }
 
     public void addUserVote(String userName, String vote) {
-        userVote.put(userName, vote);
+        Vote next = Vote.fromValue(vote);
+        Vote previous = userVote.put(userName, next);
+        if (previous == next)
+            return;
 
-        this.like = 0;
-        this.dislike = 0;
+        counter(next).increment();
+        if (previous != null)
+            counter(previous).decrement();
+    }
 
-        for (String key : userVote.keySet()) {
-            if (userVote.get(key).equals("like"))
-                this.like += 1;
-            else if (userVote.get(key).equals("dislike"))
-                this.dislike += 1;
-        }
+    private LongAdder counter(Vote vote) {
+        return vote == Vote.LIKE ? like : dislike;
     }
 }
@@ -1,49 +1,192 @@
 package model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import exceptions.NotInStock;
 import static defines.Errors.INVALID_RATE_RANGE;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 @Getter
 @Setter
 public class Commodity {
+    private static final AtomicIntegerFieldUpdater<Commodity> IN_STOCK =
+            AtomicIntegerFieldUpdater.newUpdater(Commodity.class, "inStock");
+    private static final AtomicLongFieldUpdater<Commodity> RATE_TOTALS =
+            AtomicLongFieldUpdater.newUpdater(Commodity.class, "rateTotals");
+
     private String id;
     private String name;
     private String providerId;
     private int price;
     private ArrayList<String> categories = new ArrayList<>();
-    private float rating;
-    private int inStock;
+    private volatile float rating;
+    private volatile int inStock;
     private String image;
 
-    private Map<String, Integer> userRate = new HashMap<>();
+    private Map<String, Integer> userRate = new ConcurrentHashMap<>();
     private float initRate;
 
+    // Sum of userRate in the high half and its size in the low half, so both
+    // move together in a single atomic add.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile long rateTotals;
+
+    // Moves to a new value after every change, so readers that see the new
+    // version also see the change.
+    @Setter(AccessLevel.NONE)
+    @Getter(onMethod_ = @JsonIgnore)
+    private volatile long version = Versions.next();
+
+    // Once Database stores the commodity, price, stock, rating and categories
+    // live in its columns and the fields above hold the values from before.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile CommodityColumns columns;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int ordinal;
+
+    void bindColumns(CommodityColumns columns, int ordinal) {
+        columns.setPrice(ordinal, price);
+        columns.setInStock(ordinal, inStock);
+        columns.setRating(ordinal, rating);
+        columns.setCategories(ordinal, categories);
+        this.ordinal = ordinal;
+        this.columns = columns;
+    }
+
+    // Copies the values back, so a replaced commodity keeps them once its
+    // ordinal belongs to another.
+    void unbindColumns() {
+        CommodityColumns columns = this.columns;
+        if (columns == null)
+            return;
+
+        price = columns.getPrice(ordinal);
+        inStock = columns.getInStock(ordinal);
+        rating = columns.getRating(ordinal);
+        this.columns = null;
+    }
+
+    public void setCategories(ArrayList<String> categories) {
+        this.categories = categories;
+        CommodityColumns columns = this.columns;
+        if (columns != null)
+            columns.setCategories(ordinal, categories);
+    }
+
+    public void setUserRate(Map<String, Integer> userRate) {
+        this.userRate = new ConcurrentHashMap<>(userRate);
+        int sum = 0;
+        for (int score : this.userRate.values())
+            sum += score;
+        this.rateTotals = packRateTotals(sum, this.userRate.size());
+        version = Versions.next();
+    }
+
+    public int getPrice() {
+        CommodityColumns columns = this.columns;
+        return columns == null ? price : columns.getPrice(ordinal);
+    }
+
+    public void setPrice(int price) {
+        CommodityColumns columns = this.columns;
+        if (columns == null)
+            this.price = price;
+        else
+            columns.setPrice(ordinal, price);
+        version = Versions.next();
+    }
+
+    public int getInStock() {
+        CommodityColumns columns = this.columns;
+        return columns == null ? inStock : columns.getInStock(ordinal);
+    }
+
+    public void setInStock(int inStock) {
+        CommodityColumns columns = this.columns;
+        if (columns == null)
+            this.inStock = inStock;
+        else
+            columns.setInStock(ordinal, inStock);
+        version = Versions.next();
+    }
+
+    public float getRating() {
+        CommodityColumns columns = this.columns;
+        return columns == null ? rating : columns.getRating(ordinal);
+    }
+
+    public void setRating(float rating) {
+        CommodityColumns columns = this.columns;
+        if (columns == null)
+            this.rating = rating;
+        else
+            columns.setRating(ordinal, rating);
+        version = Versions.next();
+    }
+
     public void updateInStock(int amount) throws NotInStock {
-        if ((this.inStock + amount) < 0)
+        if (!tryUpdateInStock(amount))
             throw new NotInStock();
-        this.inStock += amount;
     }
 
-    public void addRate(String username, int score) throws IllegalArgumentException {
+    public boolean tryUpdateInStock(int amount) {
+        CommodityColumns columns = this.columns;
+        if (columns != null) {
+            if (!columns.tryUpdateInStock(ordinal, amount))
+                return false;
+
+            version = Versions.next();
+            return true;
+        }
+
+        int current;
+        do {
+            current = this.inStock;
+            if ((current + amount) < 0)
+                return false;
+        } while (!IN_STOCK.compareAndSet(this, current, current + amount));
+
+        version = Versions.next();
+        return true;
+    }
+
+    public static void checkRate(int score) throws IllegalArgumentException {
         if (score < 1 || score > 10)
             throw new IllegalArgumentException(INVALID_RATE_RANGE);
-        userRate.put(username, score);
-        this.calcRating();
     }
 
-    private void calcRating() {
-        float sum = 0;
-        for (Map.Entry<String, Integer> entry : this.userRate.entrySet()) {
-            sum += entry.getValue();
+    public void addRate(String username, int score) throws IllegalArgumentException {
+        checkRate(score);
+
+        Integer previous = userRate.put(username, score);
+        long delta = previous == null ? packRateTotals(score, 1) : packRateTotals(score - previous, 0);
+        publishRating(RATE_TOTALS.addAndGet(this, delta));
+    }
+
+    // Concurrent raters may publish out of order, so whoever writes the rating
+    // checks the totals afterwards and writes again if they moved on.
+    private void publishRating(long totals) {
+        while (true) {
+            setRating((this.initRate + (int) (totals >> 32)) / ((int) totals + 1));
+            long current = this.rateTotals;
+            if (current == totals)
+                return;
+            totals = current;
         }
+    }
 
-        this.rating = ((this.initRate + sum) / (this.userRate.size() + 1));
+    private static long packRateTotals(int sum, int count) {
+        return ((long) sum << 32) + count;
     }
 }
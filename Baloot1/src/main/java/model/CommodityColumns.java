@@ -0,0 +1,146 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Price, stock, rating and categories of every stored commodity, one primitive
+// column each, indexed by the ordinal Database assigns. A bound commodity reads
+// and writes these through the columns, so code holding only an ordinal sees
+// the same values without loading the object. Columns grow in fixed-size chunks
+// that never move; ratings are stored as their float bits.
+//
+// Categories are a bit set: the first 63 categories seen get a bit each and
+// any later one sets OTHER_CATEGORIES, which callers resolve from the objects.
+public class CommodityColumns {
+    public static final long OTHER_CATEGORIES = 1L << 63;
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile int[][] prices = new int[0][];
+    private volatile int[][] stocks = new int[0][];
+    private volatile int[][] ratings = new int[0][];
+    private volatile long[][] categories = new long[0][];
+    private int chunks;
+    private final Map<String, Long> categoryBits = new ConcurrentHashMap<>();
+
+    public void bind(Commodity commodity, int ordinal) {
+        ensureCapacity(ordinal);
+        commodity.bindColumns(this, ordinal);
+    }
+
+    public void unbind(Commodity commodity) {
+        commodity.unbindColumns();
+    }
+
+    private synchronized void ensureCapacity(int ordinal) {
+        int needed = (ordinal >>> CHUNK_SHIFT) + 1;
+        if (needed <= chunks)
+            return;
+
+        int[][] grownPrices = grow(prices, needed);
+        int[][] grownStocks = grow(stocks, needed);
+        int[][] grownRatings = grow(ratings, needed);
+        long[][] grownCategories = grow(categories, needed);
+        for (int i = chunks; i < needed; i++) {
+            grownPrices[i] = new int[CHUNK_SIZE];
+            grownStocks[i] = new int[CHUNK_SIZE];
+            grownRatings[i] = new int[CHUNK_SIZE];
+            grownCategories[i] = new long[CHUNK_SIZE];
+        }
+        prices = grownPrices;
+        stocks = grownStocks;
+        ratings = grownRatings;
+        categories = grownCategories;
+        chunks = needed;
+    }
+
+    private static <T> T[] grow(T[] column, int needed) {
+        return column.length >= needed ? column : Arrays.copyOf(column, Math.max(needed, column.length * 2));
+    }
+
+    public int getPrice(int ordinal) {
+        return (int) INTS.getVolatile(prices[ordinal >>> CHUNK_SHIFT], ordinal & CHUNK_MASK);
+    }
+
+    public void setPrice(int ordinal, int price) {
+        INTS.setVolatile(prices[ordinal >>> CHUNK_SHIFT], ordinal & CHUNK_MASK, price);
+    }
+
+    public int getInStock(int ordinal) {
+        return (int) INTS.getVolatile(stocks[ordinal >>> CHUNK_SHIFT], ordinal & CHUNK_MASK);
+    }
+
+    public void setInStock(int ordinal, int inStock) {
+        INTS.setVolatile(stocks[ordinal >>> CHUNK_SHIFT], ordinal & CHUNK_MASK, inStock);
+    }
+
+    public boolean tryUpdateInStock(int ordinal, int amount) {
+        int[] chunk = stocks[ordinal >>> CHUNK_SHIFT];
+        int index = ordinal & CHUNK_MASK;
+        int current;
+        do {
+            current = (int) INTS.getVolatile(chunk, index);
+            if ((current + amount) < 0)
+                return false;
+        } while (!INTS.compareAndSet(chunk, index, current, current + amount));
+
+        return true;
+    }
+
+    public float getRating(int ordinal) {
+        return Float.intBitsToFloat((int) INTS.getVolatile(ratings[ordinal >>> CHUNK_SHIFT], ordinal & CHUNK_MASK));
+    }
+
+    public void setRating(int ordinal, float rating) {
+        INTS.setVolatile(ratings[ordinal >>> CHUNK_SHIFT], ordinal & CHUNK_MASK, Float.floatToRawIntBits(rating));
+    }
+
+    public long getCategoryBits(int ordinal) {
+        return (long) LONGS.getVolatile(categories[ordinal >>> CHUNK_SHIFT], ordinal & CHUNK_MASK);
+    }
+
+    public void setCategories(int ordinal, Collection<String> names) {
+        LONGS.setVolatile(categories[ordinal >>> CHUNK_SHIFT], ordinal & CHUNK_MASK, categoryBits(names));
+    }
+
+    // The bits of the given categories, with OTHER_CATEGORIES for any past the first 63.
+    public long categoryBits(Collection<String> names) {
+        long bits = 0;
+        for (String name : names)
+            bits |= categoryBit(name);
+
+        return bits;
+    }
+
+    // The category's bit without assigning one: 0 for a category no commodity has.
+    public long findCategoryBit(String name) {
+        Long bit = categoryBits.get(name);
+        return bit == null ? 0 : bit;
+    }
+
+    private long categoryBit(String name) {
+        Long bit = categoryBits.get(name);
+        if (bit != null)
+            return bit;
+
+        synchronized (categoryBits) {
+            return categoryBits.computeIfAbsent(name, key -> categoryBits.size() < 63 ? 1L << categoryBits.size() : OTHER_CATEGORIES);
+        }
+    }
+
+    // True or false when the bits decide it, null when only OTHER_CATEGORIES is shared.
+    public static Boolean shareCategory(long bits, long otherBits) {
+        long shared = bits & otherBits;
+        if ((shared & ~OTHER_CATEGORIES) != 0)
+            return true;
+
+        return shared == 0 ? false : null;
+    }
+}
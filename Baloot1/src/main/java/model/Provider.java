@@ -1,5 +1,7 @@
 package model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,4 +12,9 @@ public class Provider {
     private String name;
     private String registryDate;
     private String image;
+
+    // Providers are not changed once loaded, so the version is fixed at creation.
+    @Setter(AccessLevel.NONE)
+    @Getter(onMethod_ = @JsonIgnore)
+    private final long version = Versions.next();
 }
@@ -1,14 +1,17 @@
 package model;
 
+import database.Database;
 import exceptions.CommodityIsNotInBuyList;
 import exceptions.InsufficientCredit;
 import exceptions.InvalidCreditRange;
 import exceptions.NotInStock;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import utils.IntIntMap;
+import utils.IntKeyedMap;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import static defines.Errors.INVALID_PURCHASE_QUANTITY;
@@ -22,11 +25,19 @@ public class User {
     private String email;
     private String birthDate;
     private String address;
-    private float credit;
+    private volatile float credit;
 
-    private Map<Integer, Integer> commoditiesRates = new HashMap<>();
-    private Map<String, Integer> buyList = new HashMap<>();
-    private Map<String, Integer> purchasedList = new HashMap<>();
+    // Keyed by the commodity ordinals Database assigns; the getters return map views
+    // so the JSON shape stays the same.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final IntIntMap commoditiesRates = new IntIntMap();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final IntIntMap buyList = new IntIntMap();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final IntIntMap purchasedList = new IntIntMap();
 
     public User(String username, String password, String email, String birthDate, String address) {
         this.username = username;
@@ -36,14 +47,53 @@ public class User {
         this.address = address;
     }
 
-    public void addCredit(float amount) throws InvalidCreditRange {
+    public Map<Integer, Integer> getCommoditiesRates() {
+        return new IntKeyedMap<>(commoditiesRates, IntKeyedMap.INTEGER_KEYS);
+    }
+
+    public void setCommoditiesRates(Map<Integer, Integer> commoditiesRates) {
+        replace(this.commoditiesRates, commoditiesRates, IntKeyedMap.INTEGER_KEYS);
+    }
+
+    public Map<String, Integer> getBuyList() {
+        return new IntKeyedMap<>(buyList, Database.COMMODITY_KEYS);
+    }
+
+    // Commodity ordinals and quantities interleaved, taken atomically.
+    public int[] buyListItems() {
+        return buyList.entries();
+    }
+
+    public void setBuyList(Map<String, Integer> buyList) {
+        replace(this.buyList, buyList, Database.COMMODITY_KEYS);
+    }
+
+    public Map<String, Integer> getPurchasedList() {
+        return new IntKeyedMap<>(purchasedList, Database.COMMODITY_KEYS);
+    }
+
+    public void setPurchasedList(Map<String, Integer> purchasedList) {
+        replace(this.purchasedList, purchasedList, Database.COMMODITY_KEYS);
+    }
+
+    private static <K> void replace(IntIntMap target, Map<K, Integer> source, IntKeyedMap.KeyCodec<K> codec) {
+        IntIntMap copy = new IntIntMap();
+        source.forEach((key, value) -> copy.put(codec.encode(key), value));
+        target.copyFrom(copy);
+    }
+
+    public static void checkCredit(float amount) throws InvalidCreditRange {
         if (amount < 0)
             throw new InvalidCreditRange();
+    }
+
+    public synchronized void addCredit(float amount) throws InvalidCreditRange {
+        checkCredit(amount);
 
         this.credit += amount;
     }
 
-    public void withdrawCredit(float amount) throws InsufficientCredit, IllegalArgumentException {
+    public synchronized void withdrawCredit(float amount) throws InsufficientCredit, IllegalArgumentException {
         if (amount > this.credit)
             throw new InsufficientCredit();
         if (amount < 0)
@@ -56,34 +106,41 @@ public class User {
         if (commodity.getInStock() <= 0) {
             throw new NotInStock();
         }
-        String id = commodity.getId();
-        if (this.buyList.containsKey(id)) {
-            int existingQuantity = this.buyList.get(id);
-            this.buyList.put(id, existingQuantity + 1);
-        } else
-            this.buyList.put(id, 1);
+        this.buyList.addTo(Database.COMMODITY_KEYS.encode(commodity.getId()), 1);
     }
 
     public void addPurchasedItem(String id, int quantity) throws IllegalArgumentException {
         if (quantity <= 0) {
             throw new IllegalArgumentException(INVALID_PURCHASE_QUANTITY);
         }
-        if (this.purchasedList.containsKey(id)) {
-            int existingQuantity = this.purchasedList.get(id);
-            this.purchasedList.put(id, existingQuantity + quantity);
-        } else
-            this.purchasedList.put(id, quantity);
+        this.purchasedList.addTo(Database.COMMODITY_KEYS.encode(id), quantity);
+    }
+
+    // Applies every delta or none. Stock is checked once per commodity, against
+    // the quantity the whole batch leaves in the buy list. Readers see the buy
+    // list either before or after the batch.
+    public void updateBuyList(Map<Commodity, Integer> deltas) throws CommodityIsNotInBuyList, NotInStock {
+        IntIntMap updated = new IntIntMap();
+        updated.copyFrom(this.buyList);
+        for (Map.Entry<Commodity, Integer> entry : deltas.entrySet()) {
+            Commodity commodity = entry.getKey();
+            int delta = entry.getValue();
+            int ordinal = Database.COMMODITY_KEYS.encode(commodity.getId());
+            int quantity = updated.get(ordinal, 0) + delta;
+            if (quantity < 0)
+                throw new CommodityIsNotInBuyList();
+            if (delta > 0 && quantity > commodity.getInStock())
+                throw new NotInStock();
+
+            updated.addTo(ordinal, delta);
+        }
+
+        this.buyList.copyFrom(updated);
     }
 
     public void removeItemFromBuyList(Commodity commodity) throws CommodityIsNotInBuyList {
-        String id = commodity.getId();
-        if (this.buyList.containsKey(id)) {
-            int existingQuantity = this.buyList.get(id);
-            if (existingQuantity == 1)
-                this.buyList.remove(commodity.getId());
-            else
-                this.buyList.put(id, existingQuantity - 1);
-        } else
+        int ordinal = Database.COMMODITY_KEYS.find(commodity.getId());
+        if (ordinal == IntIntMap.EMPTY || !this.buyList.addToIfPresent(ordinal, -1))
             throw new CommodityIsNotInBuyList();
     }
 }
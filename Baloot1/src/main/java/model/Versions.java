@@ -0,0 +1,22 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Versions for entity tags, unique across every entity. Counting starts from the
+// clock so versions keep growing across restarts and a tag from an earlier run
+// never matches.
+public final class Versions {
+    private static final AtomicLong last = new AtomicLong(System.currentTimeMillis() << 20);
+
+    private Versions() {
+    }
+
+    public static long next() {
+        return last.incrementAndGet();
+    }
+
+    // The latest version handed out. It stays the same only while no entity changes.
+    public static long current() {
+        return last.get();
+    }
+}
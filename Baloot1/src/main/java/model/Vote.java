@@ -0,0 +1,26 @@
+package model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Getter;
+
+public enum Vote {
+    LIKE("like"),
+    DISLIKE("dislike");
+
+    @Getter(onMethod_ = @JsonValue)
+    private final String value;
+
+    Vote(String value) {
+        this.value = value;
+    }
+
+    @JsonCreator
+    public static Vote fromValue(String value) {
+        for (Vote vote : values())
+            if (vote.value.equals(value))
+                return vote;
+
+        throw new IllegalArgumentException("Unknown vote: " + value);
+    }
+}
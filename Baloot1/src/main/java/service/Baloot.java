@@ -1,42 +1,262 @@
 package service;
 
 import database.DataParser;
+import database.CommodityOrder;
 import database.Database;
+import database.Journal;
+import database.JournalRecord;
+import database.Snapshot;
+import database.StripedLock;
+import defines.Settings;
 import model.Comment;
 import model.Commodity;
 import model.Provider;
 import model.User;
 import exceptions.*;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import utils.BuyListDelta;
+import utils.Page;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 
+@Slf4j
 public class Baloot {
+    private static final int USER_LOCK_STRIPES = 64;
+    private static final int MAX_NUMBER_OF_COMMODITY_SUGGESTIONS = 4;
+
     private static Baloot instance;
 
+    private final StripedLock userLocks = new StripedLock(USER_LOCK_STRIPES);
+    private final SuggestionCache suggestionCache = new SuggestionCache(
+            commodity -> Database.getInstance().findSimilarCommodities(commodity, MAX_NUMBER_OF_COMMODITY_SUGGESTIONS),
+            MAX_NUMBER_OF_COMMODITY_SUGGESTIONS, Duration.ofMillis(Settings.SUGGESTION_CACHE_TTL_MILLIS),
+            Metrics.globalRegistry);
+    // Journaled changes hold the read side until they are applied, so the LSN
+    // a snapshot reads under the write side covers only applied changes.
+    private final ReentrantReadWriteLock applying = new ReentrantReadWriteLock();
+    private Journal journal;
+
     private Baloot() {
+        Database.getInstance().addCommodityListener(suggestionCache);
         fetchAndStoreData();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "baloot-shutdown"));
     }
 
-    public static Baloot getInstance() {
+    public static synchronized Baloot getInstance() {
         if (instance == null) {
             instance = new Baloot();
         }
         return instance;
     }
 
-    public void fetchAndStoreData() {
-        DataParser dataParser = new DataParser(Database.getInstance());
-
+    private void fetchAndStoreData() {
+        long start = System.nanoTime();
         try {
-            dataParser.getUsersList();
-            dataParser.getProvidersList();
-            dataParser.getCommoditiesList();
-            dataParser.getCommentsList();
+            long snapshotLsn = loadSnapshot();
+            if (Settings.JOURNAL_ENABLED) {
+                long replayStart = System.nanoTime();
+                openJournal(snapshotLsn);
+                log.info("Replayed journal in {} ms", (System.nanoTime() - replayStart) / 1_000_000);
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        log.info("Bootstrap finished in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long loadSnapshot() throws IOException {
+        long journalBaseLsn = Settings.JOURNAL_ENABLED ? Journal.readBaseLsn(Paths.get(Settings.JOURNAL_PATH)) : 0;
+        Path snapshot = Settings.SNAPSHOT_ENABLED ? Paths.get(Settings.SNAPSHOT_PATH) : null;
+        return loadState(Database.getInstance(), snapshot, journalBaseLsn);
+    }
+
+    // Returns the journal LSN covered by the loaded state; the JSON seed data covers
+    // none. Once the journal has dropped records, only a snapshot that covers them
+    // can stand under it: without one, startup fails rather than replaying the
+    // rest onto the seed data.
+    static long loadState(Database database, Path snapshot, long journalBaseLsn) throws IOException {
+        if (snapshot != null && Files.exists(snapshot)) {
+            long start = System.nanoTime();
+            long lsn;
+            try {
+                lsn = Snapshot.load(snapshot, database);
+            } catch (IOException | RuntimeException e) {
+                if (journalBaseLsn > 0)
+                    throw new IOException("Could not load snapshot " + snapshot + " and the journal starts after LSN "
+                            + journalBaseLsn + ".", e);
+                log.warn("Could not load snapshot {}, falling back to the JSON data", snapshot, e);
+                return loadSeed(database);
+            }
+            if (lsn < journalBaseLsn)
+                throw new IOException("Snapshot " + snapshot + " covers up to LSN " + lsn
+                        + " but the journal starts after LSN " + journalBaseLsn + ".");
+
+            log.info("Loaded snapshot in {} ms", (System.nanoTime() - start) / 1_000_000);
+            return lsn;
+        }
+
+        if (journalBaseLsn > 0)
+            throw new IOException("No snapshot to load and the journal starts after LSN " + journalBaseLsn + ".");
+
+        log.info("No snapshot to load, loading the JSON data");
+        return loadSeed(database);
+    }
+
+    private static long loadSeed(Database database) throws IOException {
+        new DataParser(database).loadAll();
+        return 0;
+    }
+
+    // For tests: swaps in another journal and returns the one in use.
+    synchronized Journal replaceJournal(Journal journal) {
+        Journal previous = this.journal;
+        this.journal = journal;
+        return previous;
+    }
+
+    private synchronized void openJournal(long snapshotLsn) throws IOException {
+        journal = Journal.open(Paths.get(Settings.JOURNAL_PATH), Settings.JOURNAL_COMPACTION_THRESHOLD,
+                Settings.JOURNAL_MAX_BATCH, snapshotLsn, this::applyJournalRecord);
+    }
+
+    // The LSN is read before the state, so every journaled change up to it is in
+    // the snapshot and the journal only has to keep what came after.
+    public synchronized void saveSnapshot() throws IOException {
+        long lsn;
+        applying.writeLock().lock();
+        try {
+            lsn = journal == null ? 0 : journal.getLastLsn();
+        } finally {
+            applying.writeLock().unlock();
+        }
+        Snapshot.write(Database.getInstance(), lsn, Paths.get(Settings.SNAPSHOT_PATH));
+        if (journal != null)
+            journal.truncate(lsn);
+    }
+
+    private synchronized void shutdown() {
+        try {
+            if (Settings.SNAPSHOT_ENABLED)
+                saveSnapshot();
+        } catch (IOException e) {
+            log.error("Could not write the shutdown snapshot", e);
+        }
+
+        if (journal != null)
+            journal.close();
+    }
+
+    private void applyJournalRecord(JournalRecord record) {
+        Database database = Database.getInstance();
+        switch (record.getType()) {
+            case USER -> database.addUser(record.getUser());
+            case COMMENT -> {
+                if (database.findComment(record.getCommentId()) == null)
+                    database.addComment(record.getComment());
+            }
+            case CREDIT -> {
+                User user = database.findUser(record.getUsername());
+                if (user != null)
+                    user.setCredit(record.getCredit());
+            }
+            case PURCHASED -> {
+                User user = database.findUser(record.getUsername());
+                if (user != null)
+                    user.setPurchasedList(record.getItems());
+            }
+            case STOCK -> {
+                Commodity commodity = database.findCommodity(record.getCommodityId());
+                if (commodity != null)
+                    commodity.setInStock(record.getStock());
+            }
+            case RATE -> {
+                Commodity commodity = database.findCommodity(record.getCommodityId());
+                if (commodity != null) {
+                    commodity.addRate(record.getUsername(), record.getScore());
+                    database.updateCommodityRating(commodity);
+                }
+            }
+            case VOTE -> {
+                database.updateComment(record.getCommentId(), comment -> comment.addUserVote(record.getUsername(), record.getVote()));
+            }
+        }
+    }
+
+    private void journal(Supplier<List<JournalRecord>> records) throws ChangeNotSaved {
+        if (journal == null)
+            return;
+
+        try {
+            journal.commit(records);
+        } catch (CompletionException e) {
+            log.error("Could not journal a change", e.getCause());
+            throw new ChangeNotSaved();
+        }
+    }
+
+    // The change is durable before anything sees it, so a failed commit leaves
+    // nothing to undo. Callers check everything that could fail first and hold
+    // the lock that orders changes to the same records.
+    private void journalThenApply(Supplier<List<JournalRecord>> records, Runnable apply) throws ChangeNotSaved {
+        applying.readLock().lock();
+        try {
+            journal(records);
+            apply.run();
+        } finally {
+            applying.readLock().unlock();
+        }
+    }
+
+    public void rateCommodity(Commodity commodity, String username, int score) throws ChangeNotSaved {
+        Commodity.checkRate(score);
+        Lock lock = userLocks.get(username);
+        lock.lock();
+        try {
+            journalThenApply(() -> List.of(JournalRecord.rate(commodity.getId(), username, score)), () -> {
+                commodity.addRate(username, score);
+                Database.getInstance().updateCommodityRating(commodity);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addCredit(User user, float amount) throws InvalidCreditRange, ChangeNotSaved {
+        User.checkCredit(amount);
+        Lock lock = userLocks.get(user.getUsername());
+        lock.lock();
+        try {
+            float credit = user.getCredit() + amount;
+            journalThenApply(() -> List.of(JournalRecord.credit(user.getUsername(), credit)), () -> user.setCredit(credit));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void voteComment(int commentId, String username, String vote) throws NotExistentComment, ChangeNotSaved {
+        Database database = Database.getInstance();
+        if (database.findComment(commentId) == null)
+            throw new NotExistentComment();
+
+        Lock lock = userLocks.get(username);
+        lock.lock();
+        try {
+            journalThenApply(() -> List.of(JournalRecord.vote(commentId, username, vote)),
+                    () -> database.updateComment(commentId, comment -> comment.addUserVote(username, vote)));
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void login(String userId, String password) throws NotExistentUser, IncorrectPassword {
@@ -50,7 +270,13 @@ public class Baloot {
         User user = getUserById(userId);
         Commodity commodity = getCommodityById(commodityId);
 
-        user.addBuyItem(commodity);
+        Lock lock = userLocks.get(user.getUsername());
+        lock.lock();
+        try {
+            user.addBuyItem(commodity);
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void removeCommodityFromUserBuyList(String userId, String commodityId)
@@ -63,132 +289,180 @@ public class Baloot {
         User user = getUserById(userId);
         Commodity commodity = getCommodityById(commodityId);
 
-        user.removeItemFromBuyList(commodity);
+        Lock lock = userLocks.get(user.getUsername());
+        lock.lock();
+        try {
+            user.removeItemFromBuyList(commodity);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public float getCurrentBuyListPrice(User user) {
-        float total = 0;
-        for (var entry : new ArrayList<>(user.getBuyList().entrySet())) {
-            try {
-                Commodity commodity = getCommodityById(entry.getKey());
-                total += commodity.getPrice() * entry.getValue();
-            } catch (NotExistentCommodity ignored) {
+    // Each commodity is looked up once, however many deltas name it.
+    public void updateUserBuyList(String userId, List<BuyListDelta> deltas)
+            throws MissingUserId, MissingBuyListItems, MissingCommodityId, NotExistentUser, NotExistentCommodity,
+            CommodityIsNotInBuyList, NotInStock {
+        if (userId == null)
+            throw new MissingUserId();
+        if (deltas == null)
+            throw new MissingBuyListItems();
+
+        User user = getUserById(userId);
+        Map<String, Commodity> commodities = new HashMap<>();
+        Map<Commodity, Integer> merged = new LinkedHashMap<>();
+        for (BuyListDelta delta : deltas) {
+            if (delta.getId() == null)
+                throw new MissingCommodityId();
+
+            Commodity commodity = commodities.get(delta.getId());
+            if (commodity == null) {
+                commodity = getCommodityById(delta.getId());
+                commodities.put(delta.getId(), commodity);
             }
+            merged.merge(commodity, delta.getQuantity(), Integer::sum);
         }
 
-        return total;
+        Lock lock = userLocks.get(user.getUsername());
+        lock.lock();
+        try {
+            user.updateBuyList(merged);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public void withdrawPayableAmount(User user) throws InsufficientCredit, NotInStock {
-        float amount = getCurrentBuyListPrice(user);
-        user.withdrawCredit(amount);
+    public float getCurrentBuyListPrice(User user) {
+        return Database.getInstance().totalPrice(user.buyListItems());
+    }
 
-        for (var entry : new ArrayList<>(user.getBuyList().entrySet())) {
-            user.addPurchasedItem(entry.getKey(), entry.getValue());
-            try {
-                Commodity commodity = getCommodityById(entry.getKey());
-                commodity.updateInStock(-entry.getValue());
-            } catch (NotExistentCommodity ignored) {
-            } catch (NotInStock e) {
+    // Stock is taken first, so the records carry the stock left after it. A
+    // failed commit puts back the stock, the credit and both lists.
+    public void withdrawPayableAmount(User user) throws InsufficientCredit, NotInStock, ChangeNotSaved {
+        Lock lock = userLocks.get(user.getUsername());
+        lock.lock();
+        try {
+            Database database = Database.getInstance();
+            int[] items = user.buyListItems();
+            float amount = database.totalPrice(items);
+            if (amount > user.getCredit())
+                throw new InsufficientCredit();
+
+            int[] reserved = database.takeStock(items);
+            if (reserved == null)
                 throw new NotInStock();
+            try {
+                user.withdrawCredit(amount);
+            } catch (InsufficientCredit e) {
+                database.returnStock(reserved);
+                throw e;
             }
-        }
 
-        user.setBuyList(new HashMap<>());
+            Map<String, Integer> buyList = new HashMap<>(user.getBuyList());
+            Map<String, Integer> purchasedList = new HashMap<>(user.getPurchasedList());
+            for (int i = 0; i < items.length; i += 2)
+                user.addPurchasedItem(database.commodityId(items[i]), items[i + 1]);
+
+            user.setBuyList(new HashMap<>());
+            try {
+                journal(() -> {
+                    List<JournalRecord> records = new ArrayList<>();
+                    records.add(JournalRecord.credit(user.getUsername(), user.getCredit()));
+                    records.add(JournalRecord.purchased(user.getUsername(), new HashMap<>(user.getPurchasedList())));
+                    for (int i = 0; i < reserved.length; i += 2)
+                        records.add(JournalRecord.stock(database.commodityId(reserved[i]), database.commodityStock(reserved[i])));
+                    return records;
+                });
+            } catch (ChangeNotSaved e) {
+                user.setPurchasedList(purchasedList);
+                user.setBuyList(buyList);
+                user.setCredit(user.getCredit() + amount);
+                database.returnStock(reserved);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     public User getUserById(String userId) throws NotExistentUser {
-        for (User user : Database.getInstance().getUsers())
-            if (user.getUsername().equals(userId))
-                return user;
+        User user = Database.getInstance().findUser(userId);
+        if (user == null)
+            throw new NotExistentUser();
 
-        throw new NotExistentUser();
+        return user;
     }
 
     public Provider getProviderById(String providerId) throws NotExistentProvider {
-        for (Provider provider : Database.getInstance().getProviders())
-            if (Objects.equals(provider.getId(), providerId))
-                return provider;
+        Provider provider = Database.getInstance().findProvider(providerId);
+        if (provider == null)
+            throw new NotExistentProvider();
 
-        throw new NotExistentProvider();
+        return provider;
     }
 
     public Commodity getCommodityById(String commodityId) throws NotExistentCommodity {
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (Objects.equals(commodity.getId(), commodityId))
-                return commodity;
+        Commodity commodity = Database.getInstance().findCommodity(commodityId);
+        if (commodity == null)
+            throw new NotExistentCommodity();
 
-        throw new NotExistentCommodity();
+        return commodity;
     }
 
     public ArrayList<Commodity> getCommodities() {
         return Database.getInstance().getCommodities();
     }
 
-    public ArrayList<Commodity> getCommoditiesProvidedByProvider(String providerId) {
-        ArrayList<Commodity> commodities = new ArrayList<>();
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (Objects.equals(commodity.getProviderId(), providerId))
-                commodities.add(commodity);
+    public Iterable<Commodity> iterateCommodities() {
+        return Database.getInstance().iterateCommodities();
+    }
 
-        return commodities;
+    public ArrayList<Commodity> getCommoditiesProvidedByProvider(String providerId) {
+        return new ArrayList<>(Database.getInstance().findCommoditiesByProvider(providerId));
     }
 
     public ArrayList<Comment> getCommentsForCommodity(int commodityId) {
-        ArrayList<Comment> comments = new ArrayList<>();
-        for (Comment comment : Database.getInstance().getComments())
-            if (comment.getCommodityId() == commodityId)
-                comments.add(comment);
+        return new ArrayList<>(Database.getInstance().findCommentsByCommodity(commodityId));
+    }
+
+    public long getCommentsVersion(int commodityId) {
+        return Database.getInstance().getCommentsVersion(commodityId);
+    }
+
+    public Page<Comment> getCommentsPageForCommodity(int commodityId, String cursor, int limit) {
+        return Database.getInstance().pageCommentsByCommodity(commodityId, cursor, limit);
+    }
 
-        return comments;
+    public Page<Commodity> getCommoditiesPage(CommodityOrder order, String cursor, int limit) {
+        return Database.getInstance().pageCommodities(order, cursor, limit);
     }
 
     public Comment getCommentById(int commentId) throws NotExistentComment {
-        for (Comment comment : Database.getInstance().getComments())
-            if (comment.getId() == commentId)
-                return comment;
+        Comment comment = Database.getInstance().findComment(commentId);
+        if (comment == null)
+            throw new NotExistentComment();
 
-        throw new NotExistentComment();
+        return comment;
     }
 
 
     public ArrayList<Commodity> filterCommoditiesByCategory(String category) {
-        ArrayList<Commodity> result = new ArrayList<>();
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (commodity.getCategories().contains(category))
-                result.add(commodity);
+        return filterCommoditiesByCategories(Collections.singletonList(category), false);
+    }
 
-        return result;
+    public ArrayList<Commodity> filterCommoditiesByCategories(List<String> categories, boolean matchAll) {
+        return new ArrayList<>(Database.getInstance().findCommoditiesByCategories(categories, matchAll));
     }
 
     public ArrayList<Commodity> filterCommoditiesByName(String name) {
-        ArrayList<Commodity> result = new ArrayList<>();
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (commodity.getName().contains(name))
-                result.add(commodity);
-
-        return result;
+        return new ArrayList<>(Database.getInstance().findCommoditiesByName(name));
     }
 
     public ArrayList<Commodity> filterCommoditiesByProviderName(String name) {
-        String providerId = "";
-        for (Provider provider : Database.getInstance().getProviders()) {
-            if (provider.getName().equals(name)) {
-                providerId = provider.getId();
-                break;
-            }
-        }
-
-        ArrayList<Commodity> result = new ArrayList<>();
-
-        if (Objects.equals(providerId, ""))
-            return result;
-
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (Objects.equals(commodity.getProviderId(), providerId))
-                result.add(commodity);
+        String providerId = Database.getInstance().findProviderIdByName(name);
+        if (providerId == null)
+            return new ArrayList<>();
 
-        return result;
+        return new ArrayList<>(Database.getInstance().findCommoditiesByProvider(providerId));
     }
 
 
@@ -202,20 +476,35 @@ public class Baloot {
         return user.getPurchasedList();
     }
 
-    public void addUser(User user) throws UsernameAlreadyTaken {
-        for (User user1 : Database.getInstance().getUsers())
-            if (user1.getUsername().equals(user.getUsername()))
+    public void addUser(User user) throws UsernameAlreadyTaken, ChangeNotSaved {
+        Database database = Database.getInstance();
+        Lock lock = userLocks.get(user.getUsername());
+        lock.lock();
+        try {
+            if (database.findUser(user.getUsername()) != null)
                 throw new UsernameAlreadyTaken();
 
-        Database.getInstance().addUser(user);
+            journalThenApply(() -> List.of(JournalRecord.user(user)), () -> database.addUser(user));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addComment(Comment comment) throws ChangeNotSaved {
+        journalThenApply(() -> List.of(JournalRecord.comment(comment)), () -> Database.getInstance().addComment(comment));
     }
 
-    public void addComment(Comment comment) {
-        Database.getInstance().addComment(comment);
+    public void addComments(List<Comment> comments) throws ChangeNotSaved {
+        journalThenApply(() -> comments.stream().map(JournalRecord::comment).toList(),
+                () -> Database.getInstance().addComments(comments));
     }
 
     public int generateCommentId() {
-        return Database.getInstance().getComments().size();
+        return Database.getInstance().nextCommentId();
+    }
+
+    public int generateCommentIds(int count) {
+        return Database.getInstance().nextCommentIds(count);
     }
 
     public int isInSimilarCategoryWithFirstCommodity(Commodity c1, Commodity c2) {
@@ -227,31 +516,7 @@ public class Baloot {
     }
 
     public ArrayList<Commodity> suggestSimilarCommodities(Commodity commodity) {
-        int MAX_NUMBER_OF_COMMODITY_SUGGESTIONS = 4;
-        ArrayList<Commodity> results = new ArrayList<>();
-        Hashtable<Commodity, Float> commodityScore = new Hashtable<>();
-
-        for (Commodity commodity1 : Database.getInstance().getCommodities()) {
-            if (commodity == commodity1)
-                continue;
-
-            float score = 11 * isInSimilarCategoryWithFirstCommodity(commodity, commodity1) + commodity1.getRating();
-            commodityScore.put(commodity1, score);
-        }
-
-        List<Map.Entry<Commodity, Float>> list = new ArrayList<>(commodityScore.entrySet());
-        list.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
-
-        int count = 0;
-        for (Map.Entry<Commodity, Float> entry : list) {
-            results.add(entry.getKey());
-
-            count += 1;
-            if (count >= MAX_NUMBER_OF_COMMODITY_SUGGESTIONS)
-                break;
-        }
-
-        return results;
+        return new ArrayList<>(suggestionCache.get(commodity));
     }
 
 }
@@ -0,0 +1,236 @@
+package service;
+
+import database.CommodityListener;
+import database.Database;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import model.Commodity;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Suggestions per commodity, kept until they expire or a change could alter them.
+// A commodity change only invalidates entries that list the changed commodity or
+// that it now outscores, found through reverse indexes rather than a scan.
+// Changes are coalesced per commodity, so the background thread never has more
+// queued than one drain of them plus one rebuild per entry. Expired and
+// invalidated entries keep being served while that thread rebuilds them.
+public class SuggestionCache implements CommodityListener {
+    private static final Comparator<Entry> WEAKEST_FIRST =
+            Comparator.comparingDouble((Entry entry) -> entry.weakestScore).thenComparingLong(entry -> entry.sequence);
+
+    private final Function<Commodity, List<Commodity>> suggest;
+    private final int limit;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Entries by the id of every commodity they suggest.
+    private final Map<String, Set<Entry>> bySuggested = new ConcurrentHashMap<>();
+    // Entries by each category of their own commodity, and all of them, weakest first.
+    private final Map<String, ConcurrentSkipListSet<Entry>> byCategory = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> byWeakest = new ConcurrentSkipListSet<>(WEAKEST_FIRST);
+    // Changes seen by each build still computing, checked once it is published.
+    private final Set<Queue<Commodity>> building = ConcurrentHashMap.newKeySet();
+    private final Map<String, Commodity> pendingChanges = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "baloot-suggestions");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter staleHits;
+    private final Counter invalidations;
+
+    private static final class Entry {
+        private final Commodity commodity;
+        private final List<Commodity> suggestions;
+        private final float weakestScore;
+        private final long builtAt;
+        private final long sequence;
+        private volatile boolean stale;
+        private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+        private Entry(Commodity commodity, List<Commodity> suggestions, float weakestScore, long builtAt, long sequence) {
+            this.commodity = commodity;
+            this.suggestions = suggestions;
+            this.weakestScore = weakestScore;
+            this.builtAt = builtAt;
+            this.sequence = sequence;
+        }
+
+        // Bounds a walk over entries weakest first, up to and including score.
+        private static Entry upTo(float score) {
+            return new Entry(null, List.of(), score, 0, Long.MAX_VALUE);
+        }
+    }
+
+    public SuggestionCache(Function<Commodity, List<Commodity>> suggest, int limit, Duration ttl, MeterRegistry registry) {
+        this.suggest = suggest;
+        this.limit = limit;
+        this.ttlNanos = ttl.toNanos();
+        this.hits = registry.counter("baloot.suggestions.cache", "result", "hit");
+        this.misses = registry.counter("baloot.suggestions.cache", "result", "miss");
+        this.staleHits = registry.counter("baloot.suggestions.cache", "result", "stale");
+        this.invalidations = registry.counter("baloot.suggestions.cache.invalidations");
+    }
+
+    public List<Commodity> get(Commodity commodity) {
+        Entry entry = entries.get(commodity.getId());
+        if (entry == null || entry.commodity != commodity) {
+            misses.increment();
+            return build(commodity).suggestions;
+        }
+
+        if (entry.stale || System.nanoTime() - entry.builtAt > ttlNanos) {
+            staleHits.increment();
+            scheduleRebuild(entry);
+        } else
+            hits.increment();
+
+        return entry.suggestions;
+    }
+
+    @Override
+    public void commodityChanged(Commodity commodity) {
+        if (commodity.getId() == null || (entries.isEmpty() && building.isEmpty()))
+            return;
+
+        pendingChanges.put(commodity.getId(), commodity);
+        if (draining.compareAndSet(false, true))
+            rebuilder.execute(this::drainChanges);
+    }
+
+    @Override
+    public void commoditiesReset() {
+        pendingChanges.clear();
+        entries.clear();
+        bySuggested.clear();
+        byCategory.clear();
+        byWeakest.clear();
+    }
+
+    private void drainChanges() {
+        do {
+            for (String id : pendingChanges.keySet()) {
+                Commodity changed = pendingChanges.remove(id);
+                if (changed != null)
+                    invalidateAffected(changed);
+            }
+            draining.set(false);
+        } while (!pendingChanges.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    private void invalidateAffected(Commodity changed) {
+        Set<Entry> candidates = new HashSet<>(bySuggested.getOrDefault(changed.getId(), Set.of()));
+        float rating = changed.getRating();
+        for (String category : changed.getCategories()) {
+            ConcurrentSkipListSet<Entry> ranked = byCategory.get(category);
+            if (ranked != null)
+                candidates.addAll(ranked.headSet(Entry.upTo(Database.SIMILAR_CATEGORY_SCORE + rating), true));
+        }
+        candidates.addAll(byWeakest.headSet(Entry.upTo(rating), true));
+
+        for (Entry entry : candidates) {
+            if (entry.stale || !affects(entry, changed))
+                continue;
+
+            entry.stale = true;
+            invalidations.increment();
+            if (entry.rebuilding.compareAndSet(false, true))
+                rebuild(entry);
+        }
+        for (Queue<Commodity> changes : building)
+            changes.add(changed);
+    }
+
+    private static boolean affects(Entry entry, Commodity changed) {
+        return entry.commodity != changed && (entry.suggestions.contains(changed)
+                || Database.similarityScore(entry.commodity, changed) >= entry.weakestScore);
+    }
+
+    private void scheduleRebuild(Entry entry) {
+        if (entry.rebuilding.compareAndSet(false, true))
+            rebuilder.execute(() -> rebuild(entry));
+    }
+
+    private void rebuild(Entry entry) {
+        if (entries.get(entry.commodity.getId()) == entry)
+            build(entry.commodity);
+    }
+
+    // Changes handled while the suggestions are computed are collected and
+    // checked against the new entry once it is indexed; any that could alter
+    // it leave the entry stale and rebuilt right away.
+    private Entry build(Commodity commodity) {
+        Queue<Commodity> changes = new ConcurrentLinkedQueue<>();
+        building.add(changes);
+        Entry entry;
+        try {
+            List<Commodity> suggestions = List.copyOf(suggest.apply(commodity));
+            float weakestScore = Float.NEGATIVE_INFINITY;
+            if (suggestions.size() >= limit)
+                weakestScore = Database.similarityScore(commodity, suggestions.get(suggestions.size() - 1));
+
+            entry = new Entry(commodity, suggestions, weakestScore, System.nanoTime(), sequence.incrementAndGet());
+            Entry built = entry;
+            entries.compute(commodity.getId(), (id, previous) -> {
+                if (previous != null)
+                    unindex(previous);
+                index(built);
+                return built;
+            });
+        } finally {
+            building.remove(changes);
+        }
+
+        for (Commodity changed : changes) {
+            if (affects(entry, changed)) {
+                entry.stale = true;
+                scheduleRebuild(entry);
+                break;
+            }
+        }
+
+        return entry;
+    }
+
+    private void index(Entry entry) {
+        for (Commodity suggested : entry.suggestions) {
+            if (suggested.getId() != null)
+                bySuggested.compute(suggested.getId(), (id, indexed) -> {
+                    Set<Entry> set = indexed == null ? ConcurrentHashMap.newKeySet() : indexed;
+                    set.add(entry);
+                    return set;
+                });
+        }
+        for (String category : entry.commodity.getCategories())
+            byCategory.computeIfAbsent(category, key -> new ConcurrentSkipListSet<>(WEAKEST_FIRST)).add(entry);
+        byWeakest.add(entry);
+    }
+
+    private void unindex(Entry entry) {
+        for (Commodity suggested : entry.suggestions) {
+            if (suggested.getId() != null)
+                bySuggested.computeIfPresent(suggested.getId(), (id, indexed) -> indexed.remove(entry) && indexed.isEmpty() ? null : indexed);
+        }
+        for (String category : entry.commodity.getCategories()) {
+            ConcurrentSkipListSet<Entry> ranked = byCategory.get(category);
+            if (ranked != null)
+                ranked.remove(entry);
+        }
+        byWeakest.remove(entry);
+    }
+
+    // Waits until every change and rebuild submitted so far has been handled.
+    void awaitRebuilds() throws InterruptedException, ExecutionException {
+        rebuilder.submit(() -> {
+        }).get();
+    }
+}
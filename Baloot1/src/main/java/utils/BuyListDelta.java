@@ -0,0 +1,18 @@
+package utils;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class BuyListDelta {
+    private String id;
+    private int quantity;
+
+    public BuyListDelta(String id, int quantity) {
+        this.id = id;
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,20 @@
+package utils;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class BuyListUpdate {
+    private String username;
+    private List<BuyListDelta> items;
+
+    public BuyListUpdate(String username, List<BuyListDelta> items) {
+        this.username = username;
+        this.items = items;
+    }
+}
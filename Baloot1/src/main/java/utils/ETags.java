@@ -0,0 +1,30 @@
+package utils;
+
+// Strong entity tags built from entity versions, and If-None-Match matching.
+public final class ETags {
+    private ETags() {
+    }
+
+    public static String of(long version) {
+        return "\"" + Long.toString(version, 36) + "\"";
+    }
+
+    // If-None-Match uses weak comparison, so a W/ prefix on either side is ignored.
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || stripWeak(candidate).equals(opaque))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
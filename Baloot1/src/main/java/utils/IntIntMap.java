@@ -0,0 +1,191 @@
+package utils;
+
+import java.util.Arrays;
+
+// Open-addressing int to int map with linear probing and backward-shift deletion,
+// so it needs no tombstones and no boxing. Integer.MIN_VALUE marks an empty slot
+// and cannot be used as a key. Every method is synchronized on the map.
+public class IntIntMap {
+    public static final int EMPTY = Integer.MIN_VALUE;
+    private static final int[] NO_SLOTS = new int[0];
+
+    private int[] keys = NO_SLOTS;
+    private int[] values = NO_SLOTS;
+    private int size;
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean containsKey(int key) {
+        return size > 0 && keys[slotOf(key)] == key;
+    }
+
+    public synchronized int get(int key, int missing) {
+        if (size == 0)
+            return missing;
+
+        int slot = slotOf(key);
+        return keys[slot] == key ? values[slot] : missing;
+    }
+
+    public synchronized void put(int key, int value) {
+        checkKey(key);
+        ensureCapacity();
+        int slot = slotOf(key);
+        if (keys[slot] != key) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    // Adds delta to the value of key, starting from zero, and removes the entry
+    // if the result is zero. Returns the new value.
+    public synchronized int addTo(int key, int delta) {
+        checkKey(key);
+        ensureCapacity();
+        int slot = slotOf(key);
+        if (keys[slot] != key) {
+            if (delta == 0)
+                return 0;
+
+            keys[slot] = key;
+            values[slot] = delta;
+            size++;
+            return delta;
+        }
+
+        int value = values[slot] + delta;
+        if (value == 0)
+            removeSlot(slot);
+        else
+            values[slot] = value;
+
+        return value;
+    }
+
+    // Same as addTo, but only if key is present.
+    public synchronized boolean addToIfPresent(int key, int delta) {
+        if (!containsKey(key))
+            return false;
+
+        addTo(key, delta);
+        return true;
+    }
+
+    public synchronized int remove(int key, int missing) {
+        if (size == 0)
+            return missing;
+
+        int slot = slotOf(key);
+        if (keys[slot] != key)
+            return missing;
+
+        int value = values[slot];
+        removeSlot(slot);
+        return value;
+    }
+
+    public synchronized void clear() {
+        keys = NO_SLOTS;
+        values = NO_SLOTS;
+        size = 0;
+    }
+
+    public void copyFrom(IntIntMap other) {
+        int[] entries = other.entries();
+        synchronized (this) {
+            clear();
+            for (int i = 0; i < entries.length; i += 2)
+                put(entries[i], entries[i + 1]);
+        }
+    }
+
+    // Keys and values interleaved, taken atomically.
+    public synchronized int[] entries() {
+        int[] entries = new int[size * 2];
+        int next = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                entries[next++] = keys[slot];
+                entries[next++] = values[slot];
+            }
+        }
+
+        return entries;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        int[] entries = entries();
+        for (int i = 0; i < entries.length; i += 2)
+            consumer.accept(entries[i], entries[i + 1]);
+    }
+
+    private static void checkKey(int key) {
+        if (key == EMPTY)
+            throw new IllegalArgumentException("Key " + EMPTY + " is reserved.");
+    }
+
+    // The slot holding key, or the empty slot where it would go.
+    private int slotOf(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void ensureCapacity() {
+        if (keys.length == 0) {
+            keys = new int[4];
+            values = new int[4];
+            Arrays.fill(keys, EMPTY);
+            return;
+        }
+        if ((size + 1) * 4 <= keys.length * 3)
+            return;
+
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                int target = slotOf(oldKeys[slot]);
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    // Moves later entries of the probe run back so lookups never stop early at the hole.
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+}
@@ -0,0 +1,134 @@
+package utils;
+
+import java.util.*;
+
+// Map view over an IntIntMap whose keys are encoded as ints, so callers and JSON
+// keep seeing the usual map while nothing is stored boxed. Iteration works on a
+// copy of the entries taken when it starts.
+public class IntKeyedMap<K> extends AbstractMap<K, Integer> {
+    public interface KeyCodec<K> {
+        // The encoded key, or IntIntMap.EMPTY if key was never encoded.
+        int find(Object key);
+
+        int encode(K key);
+
+        K decode(int key);
+    }
+
+    public static final KeyCodec<Integer> INTEGER_KEYS = new KeyCodec<>() {
+        @Override
+        public int find(Object key) {
+            return key instanceof Integer ? (Integer) key : IntIntMap.EMPTY;
+        }
+
+        @Override
+        public int encode(Integer key) {
+            return key;
+        }
+
+        @Override
+        public Integer decode(int key) {
+            return key;
+        }
+    };
+
+    private final IntIntMap map;
+    private final KeyCodec<K> codec;
+
+    public IntKeyedMap(IntIntMap map, KeyCodec<K> codec) {
+        this.map = map;
+        this.codec = codec;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int encoded = codec.find(key);
+        return encoded != IntIntMap.EMPTY && map.containsKey(encoded);
+    }
+
+    @Override
+    public Integer get(Object key) {
+        int encoded = codec.find(key);
+        if (encoded == IntIntMap.EMPTY || !map.containsKey(encoded))
+            return null;
+
+        return map.get(encoded, 0);
+    }
+
+    @Override
+    public Integer put(K key, Integer value) {
+        int encoded = codec.encode(key);
+        synchronized (map) {
+            Integer previous = map.containsKey(encoded) ? map.get(encoded, 0) : null;
+            map.put(encoded, value);
+            return previous;
+        }
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        int encoded = codec.find(key);
+        if (encoded == IntIntMap.EMPTY)
+            return null;
+
+        synchronized (map) {
+            if (!map.containsKey(encoded))
+                return null;
+
+            return map.remove(encoded, 0);
+        }
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public Set<Entry<K, Integer>> entrySet() {
+        int[] entries = map.entries();
+        List<Entry<K, Integer>> copy = new ArrayList<>(entries.length / 2);
+        for (int i = 0; i < entries.length; i += 2)
+            copy.add(new SimpleImmutableEntry<>(codec.decode(entries[i]), entries[i + 1]));
+
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, Integer>> iterator() {
+                Iterator<Entry<K, Integer>> iterator = copy.iterator();
+                return new Iterator<>() {
+                    private Entry<K, Integer> last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, Integer> next() {
+                        last = iterator.next();
+                        return last;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null)
+                            throw new IllegalStateException();
+
+                        IntKeyedMap.this.remove(last.getKey());
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return copy.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package utils;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// One page of a listing. nextCursor fetches the following page and is null on the last one.
+@Getter
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -1,5 +1,6 @@
 package controllers;
 
+import exceptions.ChangeNotSaved;
 import exceptions.IncorrectPassword;
 import exceptions.NotExistentUser;
 import exceptions.UsernameAlreadyTaken;
@@ -69,7 +70,7 @@ public class AuthenticationControllerTest {
 
     @Test
     @DisplayName("Test correct signup attempt")
-    public void testSignup() throws UsernameAlreadyTaken {
+    public void testSignup() throws UsernameAlreadyTaken, ChangeNotSaved {
         Map<String, String> input = getSignupInput();
         doNothing().when(baloot).addUser(any());
         ResponseEntity<String> response = authController.signup(input);
@@ -80,7 +81,7 @@ public class AuthenticationControllerTest {
 
     @Test
     @DisplayName("Test correct signup user credentials")
-    public void testSignupUserCorrect() throws UsernameAlreadyTaken {
+    public void testSignupUserCorrect() throws UsernameAlreadyTaken, ChangeNotSaved {
         Map<String, String> input = getSignupInput();
         ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
         doNothing().when(baloot).addUser(userCaptor.capture());
@@ -95,7 +96,7 @@ public class AuthenticationControllerTest {
 
     @Test
     @DisplayName("Test signup with already taken username")
-    public void testSignupUsernameAlreadyTaken() throws UsernameAlreadyTaken {
+    public void testSignupUsernameAlreadyTaken() throws UsernameAlreadyTaken, ChangeNotSaved {
         Map<String, String> input = getSignupInput();
         doThrow(new UsernameAlreadyTaken()).when(baloot).addUser(argThat(user -> user.getUsername().equals(input.get("username"))));
         ResponseEntity<String> response = authController.signup(input);
@@ -0,0 +1,80 @@
+package controllers;
+
+import application.BalootApplication;
+import exceptions.NotInStock;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import service.Baloot;
+import utils.BuyListDelta;
+
+import java.util.List;
+
+import static defines.Errors.COMMODITY_IS_NOT_IN_STOCK;
+import static defines.Errors.MISSING_BUY_LIST_ITEMS;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+@SpringBootTest(classes = BalootApplication.class)
+public class BuyListControllerApiTest {
+    @MockBean
+    private Baloot baloot;
+    @Autowired
+    private BuyListController buyListController;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        buyListController.setBaloot(baloot);
+    }
+
+    @Test
+    @DisplayName("Test updateBuyList() passes every delta in one call")
+    @SuppressWarnings("unchecked")
+    public void testUpdateBuyListApi() throws Exception {
+        mockMvc.perform(post("/buy-list/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"person\", \"items\": [{\"id\": \"1\", \"quantity\": 3}, {\"id\": \"2\", \"quantity\": -1}]}"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("buy list updated successfully!"));
+
+        ArgumentCaptor<List<BuyListDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(baloot, times(1)).updateUserBuyList(eq("person"), deltas.capture());
+        Assertions.assertEquals(List.of("1", "2"), deltas.getValue().stream().map(BuyListDelta::getId).toList());
+        Assertions.assertEquals(List.of(3, -1), deltas.getValue().stream().map(BuyListDelta::getQuantity).toList());
+    }
+
+    @Test
+    @DisplayName("Test updateBuyList() with more than the stock")
+    public void testUpdateBuyListApiNotInStock() throws Exception {
+        doThrow(new NotInStock()).when(baloot).updateUserBuyList(anyString(), anyList());
+        mockMvc.perform(post("/buy-list/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"person\", \"items\": [{\"id\": \"1\", \"quantity\": 30}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(COMMODITY_IS_NOT_IN_STOCK));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"{\"username\": \"person\", \"items\": null}", "{\"username\": \"person\"}"})
+    @DisplayName("Test updateBuyList() without items")
+    public void testUpdateBuyListApiWithoutItems(String body) throws Exception {
+        doCallRealMethod().when(baloot).updateUserBuyList(anyString(), any());
+        mockMvc.perform(post("/buy-list/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(MISSING_BUY_LIST_ITEMS));
+    }
+}
@@ -1,8 +1,7 @@
 package controllers;
 
+import exceptions.ChangeNotSaved;
 import exceptions.NotExistentComment;
-import model.Comment;
-
 import org.junit.jupiter.api.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,14 +15,12 @@ import static org.mockito.Mockito.*;
 public class CommentControllerTest {
     private CommentController commentController;
     private Baloot baloot;
-    private Comment comment;
     private Map<String, String> input;
     private final String username = "person";
 
     @BeforeEach
     public void setUp() {
         baloot = mock(Baloot.class);
-        comment = spy(new Comment(1, "email@mail.com", username, 1, "text"));
         input = Map.of("username", username);
         commentController = new CommentController();
         commentController.setBaloot(baloot);
@@ -31,60 +28,54 @@ public class CommentControllerTest {
 
     @Test
     @DisplayName("Test liking an existing comment")
-    public void testLikeComment() throws NotExistentComment {
-        when(baloot.getCommentById(1)).thenReturn(comment);
+    public void testLikeComment() throws NotExistentComment, ChangeNotSaved {
         ResponseEntity<String> response = commentController.likeComment("1", input);
-        verify(comment, times(1)).addUserVote(username, "like");
+        verify(baloot, times(1)).voteComment(1, username, "like");
         Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
         Assertions.assertEquals("The comment was successfully liked!", response.getBody());
     }
 
     @Test
     @DisplayName("Test liking a nonexistent comment")
-    public void testLikeCommentWithNonexistentComment() throws NotExistentComment {
-        when(baloot.getCommentById(1)).thenThrow(new NotExistentComment());
+    public void testLikeCommentWithNonexistentComment() throws NotExistentComment, ChangeNotSaved {
+        doThrow(new NotExistentComment()).when(baloot).voteComment(1, username, "like");
         ResponseEntity<String> response = commentController.likeComment("1", input);
-        verify(comment, times(0)).addUserVote(username, "like");
         Assertions.assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         Assertions.assertEquals(NOT_EXISTENT_COMMENT, response.getBody());
     }
 
     @Test
     @DisplayName("Test liking without username")
-    public void testLikeCommentWithoutUsername() throws NotExistentComment {
-        when(baloot.getCommentById(1)).thenReturn(comment);
+    public void testLikeCommentWithoutUsername() throws NotExistentComment, ChangeNotSaved {
         ResponseEntity<String> response = commentController.likeComment("1", Map.of());
-        verify(comment, times(0)).addUserVote(username, "like");
+        verify(baloot, never()).voteComment(anyInt(), any(), any());
         Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         Assertions.assertEquals("username not supplied.", response.getBody());
     }
 
     @Test
     @DisplayName("Test disliking an existing comment")
-    public void testDislikeComment() throws NotExistentComment {
-        when(baloot.getCommentById(1)).thenReturn(comment);
+    public void testDislikeComment() throws NotExistentComment, ChangeNotSaved {
         ResponseEntity<String> response = commentController.dislikeComment("1", input);
-        verify(comment, times(1)).addUserVote(username, "dislike");
+        verify(baloot, times(1)).voteComment(1, username, "dislike");
         Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
         Assertions.assertEquals("The comment was successfully disliked!", response.getBody());
     }
 
     @Test
     @DisplayName("Test disliking a nonexistent comment")
-    public void testDislikeCommentWithNonexistentComment() throws NotExistentComment {
-        when(baloot.getCommentById(1)).thenThrow(new NotExistentComment());
+    public void testDislikeCommentWithNonexistentComment() throws NotExistentComment, ChangeNotSaved {
+        doThrow(new NotExistentComment()).when(baloot).voteComment(1, username, "dislike");
         ResponseEntity<String> response = commentController.dislikeComment("1", input);
-        verify(comment, times(0)).addUserVote(username, "dislike");
         Assertions.assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         Assertions.assertEquals(NOT_EXISTENT_COMMENT, response.getBody());
     }
 
     @Test
     @DisplayName("Test disliking without username")
-    public void testDislikeCommentWithoutUsername() throws NotExistentComment {
-        when(baloot.getCommentById(1)).thenReturn(comment);
+    public void testDislikeCommentWithoutUsername() throws NotExistentComment, ChangeNotSaved {
         ResponseEntity<String> response = commentController.dislikeComment("1", Map.of());
-        verify(comment, times(0)).addUserVote(username, "dislike");
+        verify(baloot, never()).voteComment(anyInt(), any(), any());
         Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         Assertions.assertEquals("username not supplied.", response.getBody());
     }
@@ -2,6 +2,7 @@ package controllers;
 
 import application.BalootApplication;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import database.CommodityOrder;
 import exceptions.NotExistentCommodity;
 import exceptions.NotExistentUser;
 import model.Comment;
@@ -18,7 +19,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import service.Baloot;
+import utils.Page;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,7 +29,8 @@ import java.util.Map;
 
 import static defines.Errors.*;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -56,6 +60,25 @@ public class CommoditiesControllerApiTest {
                 .andExpect(jsonPath("$").isEmpty());
     }
 
+    @Test
+    @DisplayName("Test getCommodities() with a limit returns a page")
+    public void testGetCommoditiesPageApi() throws Exception {
+        Commodity commodity = new Commodity();
+        commodity.setId("1");
+        when(baloot.getCommoditiesPage(CommodityOrder.RATING, "abc", 1)).thenReturn(new Page<>(List.of(commodity), "def"));
+        mockMvc.perform(get("/commodities").param("limit", "1").param("cursor", "abc").param("sort", "rating"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.nextCursor").value("def"));
+    }
+
+    @Test
+    @DisplayName("Test getCommodities() with a limit above the maximum page size")
+    public void testGetCommoditiesPageApiWithTooLargeLimit() throws Exception {
+        mockMvc.perform(get("/commodities").param("limit", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("Test getCommodities() with a list of commodities")
     public void testGetCommoditiesApi() throws Exception {
@@ -70,6 +93,24 @@ public class CommoditiesControllerApiTest {
                 .andExpect(jsonPath("$.length()").value(2));
     }
 
+    @Test
+    @DisplayName("Test exportCommodities() writes each commodity as GET /commodities does")
+    public void testExportCommoditiesApi() throws Exception {
+        Commodity commodity = new Commodity();
+        commodity.setId("1");
+        when(baloot.getCommodities()).thenReturn(new ArrayList<>(List.of(commodity)));
+        when(baloot.iterateCommodities()).thenReturn(List.of(commodity));
+        String listed = mockMvc.perform(get("/commodities")).andReturn().getResponse().getContentAsString();
+
+        MvcResult result = mockMvc.perform(get("/commodities/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(listed.substring(1, listed.length() - 1) + "\n"));
+    }
+
     @Test
     @DisplayName("Test getCommodity() with a commodity")
     public void testGetCommodityApi() throws Exception {
@@ -83,6 +124,38 @@ public class CommoditiesControllerApiTest {
                 .andExpect(jsonPath("$.id").value(1));
     }
 
+    @Test
+    @DisplayName("Test getCommodity() answers a matching If-None-Match with 304 until the commodity changes")
+    public void testGetCommodityApiConditional() throws Exception {
+        Commodity commodity = new Commodity() {{
+            setId("1");
+        }};
+        when(baloot.getCommodityById(commodity.getId())).thenReturn(commodity);
+        String etag = mockMvc.perform(get("/commodities/{id}", commodity.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/commodities/{id}", commodity.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        commodity.addRate("person", 7);
+        mockMvc.perform(get("/commodities/{id}", commodity.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rating").value(3.5));
+    }
+
+    @Test
+    @DisplayName("Test getCommodityComment() answers a matching If-None-Match with 304")
+    public void testGetCommodityCommentApiConditional() throws Exception {
+        when(baloot.getCommentsVersion(1)).thenReturn(42L);
+        mockMvc.perform(get("/commodities/{id}/comment", "1").header("If-None-Match", "\"16\", W/\"x\""))
+                .andExpect(status().isNotModified());
+        verify(baloot, never()).getCommentsForCommodity(1);
+    }
+
     @Test
     @DisplayName("Test getCommodity() with a non-existing commodity")
     public void testGetCommodityApiWithNonExistingCommodity() throws Exception {
@@ -313,6 +386,25 @@ public class CommoditiesControllerApiTest {
                 .andExpect(jsonPath("$").isEmpty());
     }
 
+    @Test
+    @DisplayName("Test searchCommodities() filter by all of several categories")
+    public void testSearchCommoditiesApiFilterByAllCategories() throws Exception {
+        ArrayList<Commodity> commodities = new ArrayList<>(List.of(
+                new Commodity() {{
+                    setId("1");
+                    setCategories(new ArrayList<>(List.of("category1", "category2")));
+                }}
+        ));
+        when(baloot.filterCommoditiesByCategories(List.of("category1", "category2"), true)).thenReturn(commodities);
+        Map<String, String> map = Map.of("searchOption", "allCategories", "searchValue", "category1,category2");
+        mockMvc.perform(post("/commodities/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(map)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
     @Test
     @DisplayName("Test searchCommodities() filter by provider")
     public void testSearchCommoditiesApiFilterByProvider() throws Exception {
@@ -1,5 +1,7 @@
 package controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.ChangeNotSaved;
 import exceptions.NotExistentCommodity;
 import exceptions.NotExistentUser;
 import model.Comment;
@@ -9,8 +11,12 @@ import org.junit.jupiter.api.*;
 import org.mockito.ArgumentCaptor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.mock.web.MockHttpServletResponse;
 import service.Baloot;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -66,7 +72,7 @@ public class CommoditiesControllerTest {
     @DisplayName("Test get existing commodity")
     public void testGetExistingCommodity() throws NotExistentCommodity {
         when(baloot.getCommodityById("1")).thenReturn(commodity);
-        ResponseEntity<Commodity> response = commoditiesController.getCommodity("1");
+        ResponseEntity<Commodity> response = commoditiesController.getCommodity("1", null);
         Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
         Assertions.assertEquals(commodity, response.getBody());
     }
@@ -75,18 +81,18 @@ public class CommoditiesControllerTest {
     @DisplayName("Test get nonexistent commodity")
     public void testGetNonexistentCommodity() throws NotExistentCommodity {
         when(baloot.getCommodityById("1")).thenThrow(new NotExistentCommodity());
-        ResponseEntity<Commodity> response = commoditiesController.getCommodity("1");
+        ResponseEntity<Commodity> response = commoditiesController.getCommodity("1", null);
         Assertions.assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         Assertions.assertNull(response.getBody());
     }
 
     @Test
     @DisplayName("Test rate commodity with correct data")
-    public void testRateCommodity() throws NotExistentCommodity {
+    public void testRateCommodity() throws NotExistentCommodity, ChangeNotSaved {
         Map<String, String> input = Map.of("rate", "5", "username", "person");
         when(baloot.getCommodityById("1")).thenReturn(commodity);
         ResponseEntity<String> response = commoditiesController.rateCommodity("1", input);
-        verify(commodity, times(1)).addRate("person", 5);
+        verify(baloot, times(1)).rateCommodity(commodity, "person", 5);
         Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
         Assertions.assertEquals("rate added successfully!", response.getBody());
     }
@@ -114,18 +120,18 @@ public class CommoditiesControllerTest {
 
     @Test
     @DisplayName("Test rate commodity with wrong range")
-    public void testRateCommodityWithWrongRange() throws NotExistentCommodity {
+    public void testRateCommodityWithWrongRange() throws NotExistentCommodity, ChangeNotSaved {
         Map<String, String> input = Map.of("rate", "12", "username", "person");
         when(baloot.getCommodityById("1")).thenReturn(commodity);
         ResponseEntity<String> response = commoditiesController.rateCommodity("1", input);
-        verify(commodity, times(1)).addRate("person", 12);
+        verify(baloot, never()).rateCommodity(any(), anyString(), anyInt());
         Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         Assertions.assertEquals(INVALID_RATE_RANGE, response.getBody());
     }
 
     @Test
     @DisplayName("Test add comment to commodity with existing user")
-    public void testAddCommodityComment() throws NotExistentUser {
+    public void testAddCommodityComment() throws NotExistentUser, ChangeNotSaved {
         Map<String, String> input = Map.of("username", "person", "comment", "comment");
         User user = new User("person", "123", "email@mail.com", "2023", "address");
         when(baloot.getUserById("person")).thenReturn(user);
@@ -145,7 +151,7 @@ public class CommoditiesControllerTest {
 
     @Test
     @DisplayName("Test add comment to commodity with nonexistent user")
-    public void testAddCommodityCommentWithNonexistentUser() throws NotExistentUser {
+    public void testAddCommodityCommentWithNonexistentUser() throws NotExistentUser, ChangeNotSaved {
         Map<String, String> input = Map.of("username", "person", "comment", "comment");
         when(baloot.getUserById("person")).thenThrow(new NotExistentUser());
         ResponseEntity<String> response = commoditiesController.addCommodityComment("1", input);
@@ -154,11 +160,72 @@ public class CommoditiesControllerTest {
         Assertions.assertEquals(NOT_EXISTENT_USER, response.getBody());
     }
 
+    @Test
+    @DisplayName("Test add a batch of comments across commodities")
+    @SuppressWarnings("unchecked")
+    public void testAddCommodityComments() throws NotExistentUser, ChangeNotSaved {
+        List<Map<String, String>> input = List.of(
+                Map.of("username", "person", "commodityId", "1", "comment", "first"),
+                Map.of("username", "person", "commodityId", "2", "comment", "second"));
+        User user = new User("person", "123", "email@mail.com", "2023", "address");
+        when(baloot.getUserById("person")).thenReturn(user);
+        when(baloot.generateCommentIds(2)).thenReturn(5);
+        ResponseEntity<String> response = commoditiesController.addCommodityComments(input);
+        verify(baloot, times(1)).getUserById("person");
+        ArgumentCaptor<List<Comment>> commentsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(baloot, times(1)).addComments(commentsCaptor.capture());
+        List<Comment> comments = commentsCaptor.getValue();
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals(List.of(5, 6), comments.stream().map(Comment::getId).toList());
+        Assertions.assertEquals(List.of(1, 2), comments.stream().map(Comment::getCommodityId).toList());
+        Assertions.assertEquals("email@mail.com", comments.get(1).getUserEmail());
+        Assertions.assertEquals(comments.get(0).getDate(), comments.get(1).getDate());
+    }
+
+    @Test
+    @DisplayName("Test a batch of comments with a nonexistent user adds nothing")
+    public void testAddCommodityCommentsWithNonexistentUser() throws NotExistentUser, ChangeNotSaved {
+        List<Map<String, String>> input = List.of(
+                Map.of("username", "person", "commodityId", "1", "comment", "first"),
+                Map.of("username", "ghost", "commodityId", "2", "comment", "second"));
+        when(baloot.getUserById("person")).thenReturn(new User("person", "123", "email@mail.com", "2023", "address"));
+        when(baloot.getUserById("ghost")).thenThrow(new NotExistentUser());
+        ResponseEntity<String> response = commoditiesController.addCommodityComments(input);
+        verify(baloot, never()).addComments(any());
+        verify(baloot, never()).generateCommentIds(anyInt());
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        Assertions.assertEquals(NOT_EXISTENT_USER, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Test export writes one commodity per line")
+    public void testExportCommodities() throws Exception {
+        List<Commodity> commodities = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Commodity commodity = new Commodity();
+            commodity.setId(String.valueOf(i));
+            commodity.setName("commodity " + i);
+            commodities.add(commodity);
+        }
+        when(baloot.iterateCommodities()).thenReturn(commodities);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        WebAsyncTask<Void> task = commoditiesController.exportCommodities(response);
+        Assertions.assertEquals("baloot-export-", ((ThreadPoolTaskExecutor) task.getExecutor()).getThreadNamePrefix());
+        task.getCallable().call();
+
+        String[] lines = response.getContentAsString(StandardCharsets.UTF_8).split("\n", -1);
+        Assertions.assertEquals("application/x-ndjson", response.getContentType());
+        Assertions.assertEquals(301, lines.length);
+        Assertions.assertEquals("", lines[300]);
+        ObjectMapper objectMapper = new ObjectMapper();
+        Assertions.assertEquals("commodity 299", objectMapper.readTree(lines[299]).get("name").asText());
+    }
+
     @Test
     @DisplayName("Test get commodity comments empty list")
     public void testGetCommodityCommentsEmpty() {
         when(baloot.getCommentsForCommodity(1)).thenReturn(new ArrayList<>());
-        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment("1");
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment("1", null);
         Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
         Assertions.assertEquals(new ArrayList<>(), response.getBody());
     }
@@ -171,7 +238,7 @@ public class CommoditiesControllerTest {
                 new Comment()
         ));
         when(baloot.getCommentsForCommodity(1)).thenReturn(comments);
-        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment("1");
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment("1", null);
         Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
         Assertions.assertEquals(comments, response.getBody());
     }
@@ -0,0 +1,84 @@
+package controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import database.Database;
+import model.Commodity;
+import model.Versions;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommodityJsonConverterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Database database = mock(Database.class);
+    private CommodityJsonConverter converter;
+    private List<Commodity> commodities;
+
+    @BeforeEach
+    public void setUp() {
+        converter = new CommodityJsonConverter(objectMapper, database);
+        commodities = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Commodity commodity = new Commodity();
+            commodity.setId(String.valueOf(i));
+            commodity.setName("commodity " + i);
+            commodities.add(commodity);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a commodity is serialized once until it changes")
+    public void testCommodityBytesCachedUntilChange() throws IOException {
+        Commodity commodity = commodities.get(0);
+        byte[] json = converter.json(commodity);
+        Assertions.assertSame(json, converter.json(commodity));
+        Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(commodity), json);
+
+        commodity.addRate("person", 8);
+        byte[] changed = converter.json(commodity);
+        Assertions.assertNotSame(json, changed);
+        Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(commodity), changed);
+    }
+
+    @Test
+    @DisplayName("Test a large list is kept whole until a commodity in it changes")
+    public void testListBytesCachedUntilChange() throws IOException {
+        byte[] json = converter.json(commodities);
+        Assertions.assertSame(json, converter.json(new ArrayList<>(commodities)));
+        Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(commodities), json);
+
+        commodities.get(42).setInStock(5);
+        byte[] changed = converter.json(commodities);
+        Assertions.assertNotSame(json, changed);
+        Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(commodities), changed);
+        Assertions.assertNotSame(changed, converter.json(commodities.subList(0, 99)));
+    }
+
+    @Test
+    @DisplayName("Test a large list outlives changes to other entities but not to the commodity table")
+    public void testListBytesKeyedOnCommodityTable() throws IOException {
+        byte[] json = converter.json(commodities);
+        Versions.next();
+        Assertions.assertSame(json, converter.json(commodities));
+
+        when(database.getCommoditiesVersion()).thenReturn(1L);
+        Assertions.assertNotSame(json, converter.json(commodities));
+    }
+
+    @Test
+    @DisplayName("Test replacing the catalog drops the cached bytes")
+    public void testCommoditiesResetDropsBytes() throws IOException {
+        Commodity commodity = commodities.get(0);
+        byte[] json = converter.json(commodity);
+        byte[] list = converter.json(commodities);
+
+        converter.commoditiesReset();
+        Assertions.assertNotSame(json, converter.json(commodity));
+        Assertions.assertNotSame(list, converter.json(commodities));
+    }
+}
@@ -0,0 +1,187 @@
+package controllers;
+
+import database.Database;
+import model.Comment;
+import model.Commodity;
+import org.junit.jupiter.api.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import service.Baloot;
+import utils.BuyListItem;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ControllersStressTest {
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 200;
+    private static final String COMMODITY_ID = "1";
+
+    private AuthenticationController authenticationController;
+    private BuyListController buyListController;
+    private CommentController commentController;
+    private CommoditiesController commoditiesController;
+    private UserController userController;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        Baloot baloot = Baloot.getInstance();
+        authenticationController = new AuthenticationController();
+        authenticationController.setBaloot(baloot);
+        buyListController = new BuyListController();
+        buyListController.setBaloot(baloot);
+        commentController = new CommentController();
+        commentController.setBaloot(baloot);
+        commoditiesController = new CommoditiesController();
+        commoditiesController.setBaloot(baloot);
+        userController = new UserController();
+        userController.setBaloot(baloot);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void runInParallel(IntConsumerWithException task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.accept(thread);
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(60, TimeUnit.SECONDS);
+    }
+
+    private static Map<String, String> signupInput(String username) {
+        return Map.of("username", username, "password", "password", "email", username + "@mail.com",
+                "birthDate", "2000-01-01", "address", "address");
+    }
+
+    @Test
+    @DisplayName("Test concurrent signups with the same username only succeed once")
+    public void testConcurrentSignupSameUsername() throws Exception {
+        String username = "stress-" + UUID.randomUUID();
+        AtomicInteger successes = new AtomicInteger();
+
+        runInParallel(thread -> {
+            ResponseEntity<String> response = authenticationController.signup(signupInput(username));
+            if (response.getStatusCode() == HttpStatus.OK)
+                successes.incrementAndGet();
+        });
+
+        Assertions.assertEquals(1, successes.get());
+    }
+
+    @Test
+    @DisplayName("Test hammering the controllers from many threads")
+    public void testConcurrentControllerTraffic() throws Exception {
+        String prefix = "stress-" + UUID.randomUUID() + "-";
+        int commentsBefore = commoditiesController.getCommodityComment(COMMODITY_ID, null).getBody().size();
+
+        runInParallel(thread -> {
+            String username = prefix + thread;
+            Assertions.assertEquals(HttpStatus.OK, authenticationController.signup(signupInput(username)).getStatusCode());
+            Assertions.assertEquals(HttpStatus.OK,
+                    userController.addCredit(username, Map.of("credit", "10")).getStatusCode());
+
+            Map<String, String> userInput = Map.of("username", username, "id", COMMODITY_ID);
+            for (int i = 0; i < ITERATIONS; i++) {
+                Assertions.assertEquals(HttpStatus.OK, buyListController.addToBuyList(userInput).getStatusCode());
+                if (i % 2 == 1)
+                    Assertions.assertEquals(HttpStatus.OK, buyListController.removeFromBuyList(userInput).getStatusCode());
+
+                Assertions.assertEquals(HttpStatus.OK, commoditiesController.addCommodityComment(COMMODITY_ID,
+                        Map.of("username", username, "comment", "comment " + i)).getStatusCode());
+                Assertions.assertEquals(HttpStatus.OK, commoditiesController.rateCommodity(COMMODITY_ID,
+                        Map.of("username", username, "rate", String.valueOf(i % 10 + 1))).getStatusCode());
+
+                List<Comment> comments = commoditiesController.getCommodityComment(COMMODITY_ID, null).getBody();
+                Comment last = comments.get(comments.size() - 1);
+                Assertions.assertEquals(HttpStatus.OK,
+                        commentController.likeComment(String.valueOf(last.getId()), Map.of("username", username)).getStatusCode());
+
+                Assertions.assertEquals(HttpStatus.OK, commoditiesController.getCommodities().getStatusCode());
+                Assertions.assertEquals(HttpStatus.OK, buyListController.getBuyList(userInput).getStatusCode());
+                Assertions.assertEquals(HttpStatus.OK, userController.getUser(username).getStatusCode());
+            }
+        });
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            List<BuyListItem> buyList = buyListController.getBuyList(Map.of("username", prefix + thread)).getBody();
+            Assertions.assertEquals(1, buyList.size());
+            Assertions.assertEquals(ITERATIONS / 2, buyList.get(0).getQuantity());
+        }
+
+        List<Comment> comments = commoditiesController.getCommodityComment(COMMODITY_ID, null).getBody();
+        Assertions.assertEquals(commentsBefore + THREADS * ITERATIONS, comments.size());
+        Set<Integer> ids = new HashSet<>();
+        for (Comment comment : comments)
+            Assertions.assertTrue(ids.add(comment.getId()));
+    }
+
+    @Test
+    @DisplayName("Test concurrent checkouts never oversell and fail atomically")
+    public void testConcurrentCheckoutIsAllOrNothing() throws Exception {
+        String prefix = "stress-" + UUID.randomUUID() + "-";
+        int stock = THREADS / 2;
+        Commodity scarce = new Commodity();
+        scarce.setId(prefix + "scarce");
+        scarce.setName("scarce");
+        scarce.setProviderId("1");
+        scarce.setPrice(10);
+        scarce.setInStock(stock);
+        Commodity plenty = new Commodity();
+        plenty.setId(prefix + "plenty");
+        plenty.setName("plenty");
+        plenty.setProviderId("1");
+        plenty.setPrice(5);
+        plenty.setInStock(THREADS);
+        Database.getInstance().addCommodity(scarce);
+        Database.getInstance().addCommodity(plenty);
+        AtomicInteger purchases = new AtomicInteger();
+
+        runInParallel(thread -> {
+            String username = prefix + thread;
+            authenticationController.signup(signupInput(username));
+            userController.addCredit(username, Map.of("credit", "100"));
+            buyListController.addToBuyList(Map.of("username", username, "id", plenty.getId()));
+            buyListController.addToBuyList(Map.of("username", username, "id", scarce.getId()));
+        });
+        runInParallel(thread -> {
+            String username = prefix + thread;
+            if (buyListController.purchaseBuyList(Map.of("username", username)).getStatusCode() == HttpStatus.OK)
+                purchases.incrementAndGet();
+        });
+
+        Assertions.assertEquals(stock, purchases.get());
+        Assertions.assertEquals(0, scarce.getInStock());
+        Assertions.assertEquals(THREADS - stock, plenty.getInStock());
+        for (int thread = 0; thread < THREADS; thread++) {
+            String username = prefix + thread;
+            float credit = userController.getUser(username).getBody().getCredit();
+            int buyListSize = buyListController.getBuyList(Map.of("username", username)).getBody().size();
+            if (buyListSize == 0)
+                Assertions.assertEquals(85f, credit);
+            else {
+                Assertions.assertEquals(100f, credit);
+                Assertions.assertEquals(2, buyListSize);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntConsumerWithException {
+        void accept(int value) throws Exception;
+    }
+}
@@ -0,0 +1,76 @@
+package controllers;
+
+import application.BalootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+import service.Baloot;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Rates commodities from many concurrent clients, once with requests on Tomcat's
+// worker pool and once on virtual threads, and prints throughput and latency.
+// Ratings wait for the journal's group commit, so most of a request is spent blocked.
+// Needs Java 21. Run with: java -cp target/classes:target/test-classes:<dependencies>
+// controllers.RequestThreadsBenchmark [concurrency] [requests]
+public class RequestThreadsBenchmark {
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        System.setProperty("baloot.snapshot.enabled", "false");
+        System.setProperty("baloot.journal.path", Files.createTempDirectory("baloot-threads").resolve("baloot.journal").toString());
+        String commodityId = Baloot.getInstance().getCommodities().get(0).getId();
+
+        for (String mode : new String[]{"platform", "virtual", "platform", "virtual"})
+            run(mode, concurrency, requests, commodityId);
+    }
+
+    private static void run(String mode, int concurrency, int requests, String commodityId) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BalootApplication.class)
+                .properties("logging.level.root=warn")
+                // Arguments, since default properties lose to application.properties.
+                .run("--server.port=0", "--spring.threads.virtual.enabled=" + mode.equals("virtual"))) {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            Executor executor = ((TomcatWebServer) ((WebServerApplicationContext) context).getWebServer())
+                    .getTomcat().getConnector().getProtocolHandler().getExecutor();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            Semaphore inFlight = new Semaphore(concurrency);
+            long[] latencies = new long[requests];
+            CompletableFuture<?>[] responses = new CompletableFuture<?>[requests];
+            AtomicInteger failed = new AtomicInteger();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/commodities/" + commodityId + "/rate"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"username\": \"user" + i + "\", \"rate\": \"" + (i % 10 + 1) + "\"}"))
+                        .build();
+                inFlight.acquire();
+                int index = i;
+                long sent = System.nanoTime();
+                responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                    latencies[index] = System.nanoTime() - sent;
+                    if (error != null || response.statusCode() != 200)
+                        failed.incrementAndGet();
+                    inFlight.release();
+                });
+            }
+            CompletableFuture.allOf(responses).exceptionally(error -> null).join();
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-8s %-16s %,8.0f requests/s, p50 %6.1f ms, p99 %6.1f ms, %d failed%n", mode, executor.getClass().getSimpleName(),
+                    requests * 1e9 / elapsed, latencies[requests / 2] / 1e6, latencies[requests * 99 / 100] / 1e6, failed.get());
+        }
+    }
+}
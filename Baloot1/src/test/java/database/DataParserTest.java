@@ -0,0 +1,82 @@
+package database;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class DataParserTest {
+    @TempDir
+    Path directory;
+    private Database database;
+    private DataParser dataParser;
+
+    @BeforeEach
+    public void setUp() {
+        database = Database.getInstance();
+        dataParser = new DataParser(database, directory + "/");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        new DataParser(database).loadAll();
+    }
+
+    @Test
+    @DisplayName("Test records are streamed into the database in file order")
+    public void testStreamsRecords() throws IOException {
+        Files.writeString(directory.resolve("commodities.json"), """
+                [
+                  {"id": "1", "name": "iPhone", "providerId": "1", "categories": ["phone"], "inStock": 3},
+                  {"id": "2", "name": "Galaxy", "providerId": "2", "categories": ["phone", "tech"], "inStock": 4}
+                ]""");
+        Files.writeString(directory.resolve("comments.json"), """
+                [
+                  {"username": "amin", "commodityId": 1, "text": "good"},
+                  {"username": "ali", "commodityId": "2", "text": "not bad"}
+                ]""");
+
+        dataParser.getCommoditiesList();
+        dataParser.getCommentsList();
+
+        Assertions.assertEquals(2, database.getCommodities().size());
+        Assertions.assertEquals("Galaxy", database.findCommodity("2").getName());
+        Assertions.assertEquals(1, database.findCommoditiesByCategories(List.of("tech"), true).size());
+        Assertions.assertEquals("good", database.findComment(0).getText());
+        Assertions.assertEquals("not bad", database.findComment(1).getText());
+        Assertions.assertEquals(2, database.nextCommentId());
+    }
+
+    @Test
+    @DisplayName("Test loaded comments share one version until a commodity's comments change")
+    public void testLoadedCommentsShareVersion() throws IOException {
+        Files.writeString(directory.resolve("comments.json"), """
+                [
+                  {"username": "amin", "commodityId": 1, "text": "good"},
+                  {"username": "ali", "commodityId": 2, "text": "not bad"}
+                ]""");
+
+        dataParser.getCommentsList();
+        long loaded = database.getCommentsVersion(1);
+        Assertions.assertEquals(loaded, database.getCommentsVersion(2));
+        Assertions.assertEquals(loaded, database.getCommentsVersion(3));
+
+        database.updateComment(1, comment -> comment.addUserVote("amin", "like"));
+        Assertions.assertNotEquals(loaded, database.getCommentsVersion(2));
+        Assertions.assertEquals(loaded, database.getCommentsVersion(1));
+    }
+
+    @Test
+    @DisplayName("Test a file that is not an array of records is rejected")
+    public void testRejectsNonArray() throws IOException {
+        Files.writeString(directory.resolve("users.json"), "{\"username\": \"amin\"}");
+        Files.writeString(directory.resolve("providers.json"), "[{\"id\": \"1\"}, 2]");
+
+        Assertions.assertThrows(JsonParseException.class, () -> dataParser.getUsersList());
+        Assertions.assertThrows(JsonParseException.class, () -> dataParser.getProvidersList());
+    }
+}
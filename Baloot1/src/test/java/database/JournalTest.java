@@ -0,0 +1,174 @@
+package database;
+
+import model.User;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class JournalTest {
+    @TempDir
+    Path directory;
+    private Path path;
+
+    @BeforeEach
+    public void setUp() {
+        path = directory.resolve("test.journal");
+    }
+
+    private List<JournalRecord> reopen(int compactionThreshold) throws IOException {
+        List<JournalRecord> replayed = new ArrayList<>();
+        Journal.open(path, compactionThreshold, 16, replayed::add).close();
+        return replayed;
+    }
+
+    @Test
+    @DisplayName("Test committed records are replayed in order after reopening")
+    public void testReplayAfterReopen() throws IOException {
+        try (Journal journal = Journal.open(path, 1000, 16, record -> {
+        })) {
+            journal.commit(() -> List.of(JournalRecord.user(new User("user", "pass", "mail", "2000-01-01", "address"))));
+            journal.commit(() -> List.of(JournalRecord.credit("user", 10f), JournalRecord.stock("1", 4)));
+        }
+
+        List<JournalRecord> replayed = reopen(1000);
+        Assertions.assertEquals(3, replayed.size());
+        Assertions.assertEquals("user", replayed.get(0).getUser().getUsername());
+        Assertions.assertEquals(10f, replayed.get(1).getCredit());
+        Assertions.assertEquals(4, replayed.get(2).getStock());
+        Assertions.assertEquals(List.of(1L, 2L, 3L), replayed.stream().map(JournalRecord::getLsn).toList());
+    }
+
+    @Test
+    @DisplayName("Test concurrent appends are all committed")
+    public void testConcurrentAppends() throws IOException {
+        int appends = 500;
+        try (Journal journal = Journal.open(path, 100_000, 16, record -> {
+        })) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < appends; i++) {
+                int score = i % 10 + 1;
+                futures.add(CompletableFuture.runAsync(
+                        () -> journal.commit(() -> List.of(JournalRecord.rate("1", "user" + score, score)))));
+            }
+            futures.forEach(CompletableFuture::join);
+        }
+
+        Assertions.assertEquals(appends, reopen(100_000).size());
+    }
+
+    @Test
+    @DisplayName("Test compaction keeps only the newest record per key")
+    public void testCompaction() throws IOException {
+        try (Journal journal = Journal.open(path, 4, 1, record -> {
+        })) {
+            journal.commit(() -> List.of(JournalRecord.credit("user", 1f)));
+            journal.commit(() -> List.of(JournalRecord.credit("user", 2f)));
+            journal.commit(() -> List.of(JournalRecord.rate("1", "user", 3)));
+            journal.commit(() -> List.of(JournalRecord.credit("user", 3f)));
+        }
+
+        List<JournalRecord> replayed = reopen(1000);
+        Assertions.assertEquals(2, replayed.size());
+        Assertions.assertEquals(3, replayed.get(0).getScore());
+        Assertions.assertEquals(3f, replayed.get(1).getCredit());
+    }
+
+    @Test
+    @DisplayName("Test truncation drops records covered by a snapshot")
+    public void testTruncate() throws IOException {
+        try (Journal journal = Journal.open(path, 1000, 16, record -> {
+        })) {
+            journal.commit(() -> List.of(JournalRecord.stock("1", 5)));
+            journal.commit(() -> List.of(JournalRecord.stock("2", 5)));
+            journal.truncate(journal.getLastLsn());
+            journal.commit(() -> List.of(JournalRecord.stock("3", 5)));
+        }
+
+        List<JournalRecord> replayed = reopen(1000);
+        Assertions.assertEquals(1, replayed.size());
+        Assertions.assertEquals("3", replayed.get(0).getCommodityId());
+        Assertions.assertEquals(3L, replayed.get(0).getLsn());
+    }
+
+    @Test
+    @DisplayName("Test truncation persists the base LSN and new records continue after it")
+    public void testTruncatePersistsBaseLsn() throws IOException {
+        Assertions.assertEquals(0, Journal.readBaseLsn(path));
+        try (Journal journal = Journal.open(path, 1000, 16, record -> {
+        })) {
+            journal.commit(() -> List.of(JournalRecord.stock("1", 5)));
+            journal.commit(() -> List.of(JournalRecord.stock("2", 5)));
+            journal.truncate(journal.getLastLsn());
+        }
+        Assertions.assertEquals(2, Journal.readBaseLsn(path));
+
+        try (Journal journal = Journal.open(path, 1000, 16, record -> {
+        })) {
+            journal.commit(() -> List.of(JournalRecord.stock("3", 5)));
+        }
+        Assertions.assertEquals(List.of(3L), reopen(1000).stream().map(JournalRecord::getLsn).toList());
+    }
+
+    @Test
+    @DisplayName("Test a torn last line is ignored and overwritten")
+    public void testTornTail() throws IOException {
+        try (Journal journal = Journal.open(path, 1000, 16, record -> {
+        })) {
+            journal.commit(() -> List.of(JournalRecord.vote(1, "user", "like")));
+        }
+        Files.writeString(path, "{\"lsn\":2,\"type\":\"VO", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (Journal journal = Journal.open(path, 1000, 16, record -> {
+        })) {
+            journal.commit(() -> List.of(JournalRecord.purchased("user", Map.of("1", 2))));
+        }
+
+        List<JournalRecord> replayed = reopen(1000);
+        Assertions.assertEquals(2, replayed.size());
+        Assertions.assertEquals("like", replayed.get(0).getVote());
+        Assertions.assertEquals(Map.of("1", 2), replayed.get(1).getItems());
+    }
+
+    @Test
+    @DisplayName("Test an unreadable record before the last line fails the replay and keeps the file")
+    public void testCorruptRecordFailsReplay() throws IOException {
+        try (Journal journal = Journal.open(path, 1000, 16, record -> {
+        })) {
+            journal.commit(() -> List.of(JournalRecord.stock("1", 5)));
+        }
+        Files.writeString(path, "{\"lsn\":2,\"type\":\"UNKNOWN\"}\n"
+                + "{\"lsn\":3,\"type\":\"STOCK\",\"commodityId\":\"2\",\"stock\":1}\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        long length = Files.size(path);
+
+        Assertions.assertThrows(IOException.class, () -> reopen(1000));
+        Assertions.assertEquals(length, Files.size(path));
+    }
+
+    @Test
+    @DisplayName("Test records spanning several read chunks are replayed")
+    public void testReplayAcrossChunks() throws IOException {
+        int records = 5000;
+        try (Journal journal = Journal.open(path, 100_000, 16, record -> {
+        })) {
+            for (int i = 0; i < records; i++) {
+                String id = Integer.toString(i);
+                journal.append(() -> List.of(JournalRecord.stock(id, 1)));
+            }
+            journal.commit(List::of);
+        }
+
+        List<JournalRecord> replayed = reopen(100_000);
+        Assertions.assertEquals(records, replayed.size());
+        Assertions.assertEquals(Integer.toString(records - 1), replayed.get(records - 1).getCommodityId());
+    }
+}
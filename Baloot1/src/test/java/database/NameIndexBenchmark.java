@@ -0,0 +1,75 @@
+package database;
+
+import java.util.Random;
+
+// Compares trigram lookups against the linear String.contains scan.
+// Run with: java -cp target/classes:target/test-classes database.NameIndexBenchmark
+public class NameIndexBenchmark {
+    private static final String[] WORDS = {
+            "iPhone", "Galaxy", "Pixel", "Xperia", "Redmi", "Nokia", "Mate", "Nova",
+            "Pro", "Max", "Ultra", "Lite", "Plus", "Mini", "Edge", "Note"
+    };
+    private static final String[] QUERIES = {"Galaxy Note", "Ultra", "Pixel 7", "Mini 12", "iPhone 1234"};
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        for (int size : new int[]{100_000, 1_000_000})
+            run(size);
+    }
+
+    private static void run(int size) {
+        Random random = new Random(42);
+        String[] names = new String[size];
+        NameIndex nameIndex = new NameIndex();
+        for (int i = 0; i < size; i++) {
+            names[i] = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + random.nextInt(10_000);
+            nameIndex.add(i, names[i]);
+        }
+
+        long blackhole = 0;
+        for (int round = 0; round < ROUNDS; round++)
+            for (String query : QUERIES)
+                blackhole += scan(names, query) + lookup(nameIndex, names, query);
+
+        long scanNanos = 0;
+        long indexNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String query : QUERIES) {
+                long start = System.nanoTime();
+                int scanned = scan(names, query);
+                scanNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int indexed = lookup(nameIndex, names, query);
+                indexNanos += System.nanoTime() - start;
+
+                if (scanned != indexed)
+                    throw new IllegalStateException("Mismatch for query " + query);
+                blackhole += indexed;
+            }
+        }
+
+        int queries = ROUNDS * QUERIES.length;
+        System.out.printf("%,d commodities: linear scan %.3f ms/query, trigram index %.3f ms/query (%d)%n",
+                size, scanNanos / 1e6 / queries, indexNanos / 1e6 / queries, blackhole);
+    }
+
+    private static int scan(String[] names, String query) {
+        int count = 0;
+        for (String name : names)
+            if (name.contains(query))
+                count++;
+
+        return count;
+    }
+
+    private static int lookup(NameIndex nameIndex, String[] names, String query) {
+        int count = 0;
+        for (int ordinal : nameIndex.candidates(query))
+            if (names[ordinal].contains(query))
+                count++;
+
+        return count;
+    }
+}
@@ -0,0 +1,56 @@
+package database;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class NameIndexTest {
+    private NameIndex nameIndex;
+
+    @BeforeEach
+    public void setUp() {
+        nameIndex = new NameIndex();
+        nameIndex.add(0, "iPhone");
+        nameIndex.add(1, "Galaxy");
+        nameIndex.add(2, "iPhone Pro");
+        nameIndex.add(3, "Phone Case");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "i", "iP"})
+    @DisplayName("Test queries shorter than a gram cannot be answered")
+    public void testShortQueryCannotBeAnswered(String query) {
+        Assertions.assertFalse(nameIndex.canAnswer(query));
+    }
+
+    @Test
+    @DisplayName("Test candidates contain every name sharing the query grams")
+    public void testCandidatesForSharedGrams() {
+        Assertions.assertArrayEquals(new int[]{0, 2, 3}, nameIndex.candidates("hone"));
+    }
+
+    @Test
+    @DisplayName("Test candidates for a single gram query")
+    public void testCandidatesForSingleGram() {
+        Assertions.assertArrayEquals(new int[]{1}, nameIndex.candidates("ala"));
+    }
+
+    @Test
+    @DisplayName("Test candidates when a query gram is missing")
+    public void testCandidatesForMissingGram() {
+        Assertions.assertArrayEquals(new int[0], nameIndex.candidates("Pixel"));
+    }
+
+    @Test
+    @DisplayName("Test candidates are case sensitive")
+    public void testCandidatesAreCaseSensitive() {
+        Assertions.assertArrayEquals(new int[0], nameIndex.candidates("IPHONE"));
+    }
+
+    @Test
+    @DisplayName("Test clearing the index")
+    public void testClear() {
+        nameIndex.clear();
+        Assertions.assertArrayEquals(new int[0], nameIndex.candidates("iPhone"));
+    }
+}
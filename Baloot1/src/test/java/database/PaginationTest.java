@@ -0,0 +1,107 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import org.junit.jupiter.api.*;
+import utils.Page;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Function;
+
+public class PaginationTest {
+    private Database database;
+    private ArrayList<Commodity> commodities;
+
+    @BeforeEach
+    public void setUp() {
+        database = Database.getInstance();
+        Random random = new Random(20);
+        commodities = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            Commodity commodity = new Commodity();
+            commodity.setId(String.valueOf(i));
+            commodity.setName("commodity " + i);
+            commodity.setCategories(new ArrayList<>(List.of("tech")));
+            commodity.setRating(random.nextInt(10) / 2f);
+            commodities.add(commodity);
+        }
+        Collections.shuffle(commodities, random);
+        database.setCommodities(commodities);
+
+        ArrayList<Comment> comments = new ArrayList<>();
+        for (int id = 24; id >= 0; id--)
+            comments.add(new Comment(id, "mail", "user", id % 2, "comment " + id));
+        database.setComments(comments);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        new DataParser(database).loadAll();
+    }
+
+    private static <T> List<T> pageThrough(Function<String, Page<T>> fetch) {
+        List<T> items = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<T> page = fetch.apply(cursor);
+            items.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        return items;
+    }
+
+    @Test
+    @DisplayName("Test paging commodities by id visits each once in numeric id order")
+    public void testPageById() {
+        List<Commodity> paged = pageThrough(cursor -> database.pageCommodities(CommodityOrder.ID, cursor, 10));
+        List<String> ids = paged.stream().map(Commodity::getId).toList();
+        Assertions.assertEquals(95, ids.size());
+        for (int i = 0; i < ids.size(); i++)
+            Assertions.assertEquals(String.valueOf(i), ids.get(i));
+    }
+
+    @Test
+    @DisplayName("Test paging commodities by rating visits each once, best first")
+    public void testPageByRating() {
+        List<Commodity> paged = pageThrough(cursor -> database.pageCommodities(CommodityOrder.RATING, cursor, 7));
+        Assertions.assertEquals(95, new HashSet<>(paged).size());
+        for (int i = 1; i < paged.size(); i++)
+            Assertions.assertTrue(paged.get(i - 1).getRating() >= paged.get(i).getRating());
+    }
+
+    @Test
+    @DisplayName("Test paging comments of a commodity in id order")
+    public void testPageComments() {
+        Page<Comment> first = database.pageCommentsByCommodity(1, null, 5);
+        Assertions.assertEquals(List.of(1, 3, 5, 7, 9), first.getItems().stream().map(Comment::getId).toList());
+
+        List<Comment> paged = pageThrough(cursor -> database.pageCommentsByCommodity(1, cursor, 4));
+        Assertions.assertEquals(12, paged.size());
+        Assertions.assertNull(database.pageCommentsByCommodity(1, null, 12).getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Test a malformed cursor is rejected")
+    public void testMalformedCursor() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> database.pageCommodities(CommodityOrder.RATING, "not a cursor", 5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> database.pageCommentsByCommodity(1, "bm90IGFuIGlk", 5));
+    }
+
+    @Test
+    @DisplayName("Test a batch of comments is appended to each commodity it names")
+    public void testAddCommentsBatch() {
+        long otherVersion = database.getCommentsVersion(2);
+        database.addComments(List.of(
+                new Comment(30, "mail", "user", 1, "batch 30"),
+                new Comment(31, "mail", "user", 0, "batch 31"),
+                new Comment(32, "mail", "user", 1, "batch 32")));
+
+        List<Comment> paged = pageThrough(cursor -> database.pageCommentsByCommodity(1, cursor, 5));
+        Assertions.assertEquals(List.of(30, 32), paged.subList(12, 14).stream().map(Comment::getId).toList());
+        Assertions.assertEquals(14, database.pageCommentsByCommodity(0, null, 20).getItems().size());
+        Assertions.assertEquals(otherVersion, database.getCommentsVersion(2));
+        Assertions.assertEquals(33, database.nextCommentId());
+    }
+}
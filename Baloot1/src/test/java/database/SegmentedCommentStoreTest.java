@@ -0,0 +1,150 @@
+package database;
+
+import model.Comment;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SegmentedCommentStoreTest {
+    @TempDir
+    Path directory;
+    private SegmentedCommentStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        store = new SegmentedCommentStore(directory.resolve("comments.segments"), 1);
+        for (int id = 0; id < 6; id++)
+            store.add(new Comment(id, "mail", "user" + id, id % 3, "comment " + id));
+    }
+
+    @Test
+    @DisplayName("Test comments are found by id and by commodity with a single cached segment")
+    public void testFind() {
+        Assertions.assertEquals(List.of(1, 4), store.findByCommodity(1).stream().map(Comment::getId).toList());
+        Assertions.assertEquals("comment 5", store.find(5).getText());
+        Assertions.assertEquals("comment 0", store.find(0).getText());
+        Assertions.assertNull(store.find(6));
+        Assertions.assertEquals(List.of(), store.findByCommodity(7));
+    }
+
+    @Test
+    @DisplayName("Test a page of a segment starts after the given id and is in id order")
+    public void testFindPage() {
+        store.add(new Comment(9, "mail", "user9", 1, "comment 9"));
+        store.add(new Comment(7, "mail", "user7", 1, "comment 7"));
+        Assertions.assertEquals(List.of(4, 7), store.findByCommodity(1, 1, 2).stream().map(Comment::getId).toList());
+        Assertions.assertEquals(List.of(9), store.findByCommodity(1, 7, 2).stream().map(Comment::getId).toList());
+        Assertions.assertEquals(List.of(), store.findByCommodity(8, -1, 2));
+    }
+
+    @Test
+    @DisplayName("Test votes on a cached comment survive its eviction")
+    public void testUpdateSurvivesEviction() {
+        Comment comment = store.update(2, stored -> stored.addUserVote("user", "like"));
+
+        store.findByCommodity(0);
+        store.add(new Comment(6, "mail", "user6", 2, "comment 6"));
+
+        Assertions.assertNotSame(comment, store.find(2));
+        Assertions.assertEquals(1, store.find(2).getLike());
+        Assertions.assertEquals(List.of(2, 5, 6), store.findByCommodity(2).stream().map(Comment::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Test all comments are returned in id order and clear empties the store")
+    public void testGetAllAndClear() {
+        store.findByCommodity(2).get(0);
+        Assertions.assertEquals(List.of(0, 1, 2, 3, 4, 5), store.getAll().stream().map(Comment::getId).toList());
+
+        store.clear();
+        Assertions.assertTrue(store.getAll().isEmpty());
+        Assertions.assertNull(store.find(0));
+    }
+
+    @Test
+    @DisplayName("Test a bulk load writes each segment once and replaces what was stored")
+    public void testLoad() throws IOException {
+        List<Comment> comments = new ArrayList<>();
+        for (int id = 0; id < 4; id++)
+            comments.add(new Comment(id, "mail", "user" + id, id % 2, "loaded " + id));
+        store.load(comments::forEach);
+
+        Assertions.assertEquals(List.of(1, 3), store.findByCommodity(1).stream().map(Comment::getId).toList());
+        Assertions.assertEquals("loaded 2", store.find(2).getText());
+        Assertions.assertNull(store.find(5));
+        Assertions.assertEquals(4, store.getAll().size());
+    }
+
+    @Test
+    @DisplayName("Test rewritten segments reuse the space of the extents they replace")
+    public void testRewritesReuseSpace() throws IOException {
+        Path path = directory.resolve("comments.segments");
+        store.findByCommodity(0);
+        store.findByCommodity(1);
+        store.findByCommodity(2);
+        store.findByCommodity(0);
+        long size = Files.size(path);
+
+        for (int round = 0; round < 50; round++) {
+            for (int commodityId = 0; commodityId < 3; commodityId++) {
+                String vote = round % 2 == 0 ? "like" : "dislike";
+                store.update(commodityId, comment -> comment.addUserVote("user", vote));
+            }
+        }
+
+        Assertions.assertTrue(Files.size(path) <= size * 2);
+        Assertions.assertEquals(List.of(0, 3), store.findByCommodity(0).stream().map(Comment::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Test concurrent votes are all kept while their segments keep being evicted")
+    public void testConcurrentVotesDuringEviction() throws Exception {
+        int voters = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int voter = 0; voter < voters; voter++) {
+                String username = "voter" + voter;
+                futures.add(executor.submit(() -> {
+                    for (int id = 0; id < 6; id++)
+                        store.update(id, comment -> comment.addUserVote(username, "like"));
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        for (Comment comment : store.getAll()) {
+            Assertions.assertEquals(voters, comment.getLike());
+            Assertions.assertEquals(voters, comment.getUserVote().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Test a load larger than one batch keeps every segment complete and in order")
+    public void testLoadAcrossBatches() throws IOException {
+        int count = 10_000;
+        List<Comment> comments = new ArrayList<>();
+        for (int id = 0; id < count; id++)
+            comments.add(new Comment(id, "mail", "user" + id, id % 7, "loaded " + id));
+        store.load(comments::forEach);
+
+        List<Integer> ids = store.findByCommodity(3).stream().map(Comment::getId).toList();
+        Assertions.assertEquals(count / 7 + 1, ids.size());
+        Assertions.assertEquals(3, ids.get(0));
+        Assertions.assertEquals(count - 1, ids.get(ids.size() - 1));
+        Assertions.assertEquals(ids.stream().sorted().toList(), ids);
+        Assertions.assertEquals("loaded 9999", store.find(9999).getText());
+        Assertions.assertEquals(count, store.getAll().size());
+    }
+}
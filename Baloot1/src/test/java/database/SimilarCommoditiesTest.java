@@ -0,0 +1,154 @@
+package database;
+
+import model.Commodity;
+import model.User;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.*;
+
+public class SimilarCommoditiesTest {
+    private static final String[] CATEGORIES = {"phone", "tech", "book", "food", "toy"};
+    private static final int LIMIT = 4;
+
+    private Database database;
+    private ArrayList<Commodity> commodities;
+
+    @BeforeEach
+    public void setUp() {
+        database = Database.getInstance();
+        Random random = new Random(7);
+        commodities = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Commodity commodity = new Commodity();
+            commodity.setId(String.valueOf(i));
+            commodity.setName("commodity " + i);
+            commodity.setCategories(new ArrayList<>(List.of(CATEGORIES[random.nextInt(CATEGORIES.length)])));
+            if (random.nextBoolean())
+                commodity.getCategories().add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            commodity.setRating(random.nextInt(40) / 2f);
+            commodities.add(commodity);
+        }
+        database.setCommodities(commodities);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        new DataParser(database).loadAll();
+    }
+
+    private List<Float> bruteForceScores(Commodity commodity) {
+        List<Float> scores = new ArrayList<>();
+        for (Commodity other : commodities)
+            if (other != commodity)
+                scores.add(score(commodity, other));
+
+        scores.sort(Collections.reverseOrder());
+        return scores.subList(0, LIMIT);
+    }
+
+    private static float score(Commodity commodity, Commodity other) {
+        boolean similar = !Collections.disjoint(commodity.getCategories(), other.getCategories());
+        return (similar ? 11 : 0) + other.getRating();
+    }
+
+    private void assertMatchesBruteForce() {
+        for (Commodity commodity : commodities) {
+            List<Commodity> similar = database.findSimilarCommodities(commodity, LIMIT);
+            Assertions.assertFalse(similar.contains(commodity));
+            Assertions.assertEquals(bruteForceScores(commodity), similar.stream().map(other -> score(commodity, other)).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Test the top suggestions score the same as a full scan")
+    public void testMatchesFullScan() {
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    @DisplayName("Test suggestions follow rating changes")
+    public void testFollowsRatingChanges() {
+        Commodity lowest = commodities.stream().min(Comparator.comparing(Commodity::getRating)).orElseThrow();
+        lowest.setRating(40);
+        database.updateCommodityRating(lowest);
+
+        Commodity unrelated = commodities.stream()
+                .filter(other -> Collections.disjoint(other.getCategories(), lowest.getCategories()))
+                .findFirst().orElseThrow();
+        Assertions.assertEquals(lowest, database.findSimilarCommodities(unrelated, LIMIT).get(0));
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    @DisplayName("Test the index ends up with the newest ratings after concurrent rates")
+    public void testConcurrentRates() throws InterruptedException {
+        List<Commodity> rated = commodities.subList(0, 4);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            int rater = i;
+            threads[i] = new Thread(() -> {
+                for (int round = 0; round < 200; round++) {
+                    for (Commodity commodity : rated) {
+                        commodity.addRate("user" + rater, round % 10 + 1);
+                        database.updateCommodityRating(commodity);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    @DisplayName("Test buy lists and indexes share ordinals that survive a catalog reset")
+    public void testOrdinalsSurviveReset() throws Exception {
+        User user = new User("username", "password", "mail", "2000-01-01", "address");
+        Commodity first = commodities.get(0);
+        first.setInStock(1);
+        user.addBuyItem(first);
+        user.setPurchasedList(Map.of("missing", 2));
+        int ordinal = database.commodityOrdinal(first.getId());
+
+        database.setCommodities(new ArrayList<>(commodities.subList(1, commodities.size())));
+        Assertions.assertEquals(Map.of(first.getId(), 1), user.getBuyList());
+        Assertions.assertEquals(Map.of("missing", 2), user.getPurchasedList());
+        Assertions.assertTrue(database.findCommoditiesByCategories(first.getCategories(), false).stream().noneMatch(first::equals));
+
+        database.setCommodities(new ArrayList<>(List.of(first)));
+        Assertions.assertEquals(ordinal, database.commodityOrdinal(first.getId()));
+        Assertions.assertEquals(List.of(first), database.findCommoditiesByName(first.getName()));
+        Assertions.assertEquals(List.of(), database.findSimilarCommodities(first, LIMIT));
+    }
+
+    @Test
+    @DisplayName("Test checkout and category search read the columns and see every change")
+    public void testColumnsServeCheckoutAndSearch() {
+        Commodity first = commodities.get(0);
+        Commodity second = commodities.get(1);
+        first.setPrice(30);
+        first.setInStock(2);
+        second.setPrice(7);
+        second.setInStock(1);
+        int[] items = {database.commodityOrdinal(first.getId()), 2, database.commodityOrdinal(second.getId()), 1,
+                database.commodityOrdinal("missing"), 4};
+        Assertions.assertEquals(67f, database.totalPrice(items));
+
+        Assertions.assertNotNull(database.takeStock(items));
+        Assertions.assertEquals(0, first.getInStock());
+        Assertions.assertNull(database.takeStock(items));
+        Assertions.assertEquals(0, second.getInStock());
+
+        List<Commodity> expected = commodities.stream()
+                .filter(commodity -> commodity.getCategories().containsAll(List.of("phone", "toy"))).toList();
+        Assertions.assertEquals(Set.copyOf(expected), Set.copyOf(database.findCommoditiesByCategories(List.of("phone", "toy"), true)));
+        Assertions.assertFalse(expected.isEmpty());
+
+        database.setCommodities(new ArrayList<>());
+        Assertions.assertEquals(30, first.getPrice());
+        Assertions.assertEquals(0f, database.totalPrice(items));
+    }
+}
@@ -0,0 +1,100 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.User;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import service.Baloot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+
+public class SnapshotTest {
+    @TempDir
+    Path directory;
+    private Path path;
+    private Database database;
+
+    @BeforeEach
+    public void setUp() {
+        Baloot.getInstance();
+        database = Database.getInstance();
+        path = directory.resolve("test.snapshot");
+    }
+
+    @Test
+    @DisplayName("Test a snapshot restores every table field by field")
+    public void testRoundTrip() throws IOException {
+        String username = "snapshot-" + UUID.randomUUID();
+        User user = new User(username, "pass", "مخاطب@mail.com", "2000-01-01", null);
+        user.setCredit(12.5f);
+        user.setCommoditiesRates(Map.of(1, 7));
+        user.setBuyList(Map.of("1", 2));
+        user.setPurchasedList(Map.of("2", 3));
+        database.addUser(user);
+        Comment comment = new Comment(database.nextCommentId(), "mail", username, 1, "snapshot comment");
+        comment.addUserVote(username, "like");
+        database.addComment(comment);
+
+        ArrayList<User> users = database.getUsers();
+        int providers = database.getProviders().size();
+        ArrayList<Commodity> commodities = database.getCommodities();
+        ArrayList<Comment> comments = database.getComments();
+        Snapshot.write(database, 42, path);
+        Assertions.assertEquals(42, Snapshot.load(path, database));
+
+        Assertions.assertEquals(users.size(), database.getUsers().size());
+        Assertions.assertEquals(providers, database.getProviders().size());
+        for (int i = 0; i < users.size(); i++) {
+            User expected = users.get(i);
+            User actual = database.getUsers().get(i);
+            Assertions.assertEquals(expected.getUsername(), actual.getUsername());
+            Assertions.assertEquals(expected.getEmail(), actual.getEmail());
+            Assertions.assertEquals(expected.getAddress(), actual.getAddress());
+            Assertions.assertEquals(expected.getCredit(), actual.getCredit());
+            Assertions.assertEquals(expected.getCommoditiesRates(), actual.getCommoditiesRates());
+            Assertions.assertEquals(expected.getBuyList(), actual.getBuyList());
+            Assertions.assertEquals(expected.getPurchasedList(), actual.getPurchasedList());
+        }
+
+        Assertions.assertEquals(commodities.size(), database.getCommodities().size());
+        for (int i = 0; i < commodities.size(); i++) {
+            Commodity expected = commodities.get(i);
+            Commodity actual = database.getCommodities().get(i);
+            Assertions.assertEquals(expected.getId(), actual.getId());
+            Assertions.assertEquals(expected.getName(), actual.getName());
+            Assertions.assertEquals(expected.getPrice(), actual.getPrice());
+            Assertions.assertEquals(expected.getInStock(), actual.getInStock());
+            Assertions.assertEquals(expected.getRating(), actual.getRating());
+            Assertions.assertEquals(expected.getCategories(), actual.getCategories());
+            Assertions.assertEquals(expected.getUserRate(), actual.getUserRate());
+        }
+
+        Assertions.assertEquals(comments.size(), database.getComments().size());
+        for (int i = 0; i < comments.size(); i++) {
+            Comment expected = comments.get(i);
+            Comment actual = database.getComments().get(i);
+            Assertions.assertEquals(expected.getId(), actual.getId());
+            Assertions.assertEquals(expected.getText(), actual.getText());
+            Assertions.assertEquals(expected.getLike(), actual.getLike());
+            Assertions.assertEquals(expected.getUserVote(), actual.getUserVote());
+        }
+
+        Assertions.assertEquals("مخاطب@mail.com", database.findUser(username).getEmail());
+        Assertions.assertNull(database.findUser(username).getAddress());
+        Assertions.assertEquals(comment.getId(), database.findComment(comment.getId()).getId());
+        Assertions.assertTrue(database.nextCommentId() > comment.getId());
+    }
+
+    @Test
+    @DisplayName("Test a file that is not a snapshot is rejected")
+    public void testRejectsForeignFile() throws IOException {
+        Files.writeString(path, "[{\"username\": \"user\"}]");
+        Assertions.assertThrows(IOException.class, () -> Snapshot.load(path, database));
+    }
+}
@@ -0,0 +1,111 @@
+package database;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import model.Commodity;
+import model.Provider;
+import model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Compares loading a synthetic dataset from the JSON seed files against loading it from a snapshot.
+// Run with: java -cp target/classes:target/test-classes:<dependencies> database.StartupBenchmark
+public class StartupBenchmark {
+    private static final String[] CATEGORIES = {"phone", "tech", "book", "food", "toy", "home", "car", "sport"};
+    private static final int USERS = 100_000;
+    private static final int PROVIDERS = 1_000;
+    private static final int COMMODITIES = 200_000;
+    private static final int COMMENTS = 500_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("baloot-startup");
+        writeDataset(directory);
+        Database database = Database.getInstance();
+        Path snapshot = directory.resolve("baloot.snapshot");
+        loadJson(database, directory);
+        Snapshot.write(database, 0, snapshot);
+        System.out.printf("JSON files %,d bytes, snapshot %,d bytes%n", jsonSize(directory), Files.size(snapshot));
+
+        long jsonNanos = Long.MAX_VALUE;
+        long snapshotNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            loadJson(database, directory);
+            jsonNanos = Math.min(jsonNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            Snapshot.load(snapshot, database);
+            snapshotNanos = Math.min(snapshotNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("JSON %.1f ms, snapshot %.1f ms (best of %d, %,d comments loaded)%n",
+                jsonNanos / 1e6, snapshotNanos / 1e6, ROUNDS, database.getComments().size());
+    }
+
+    private static void loadJson(Database database, Path directory) throws IOException {
+        new DataParser(database, directory + "/").loadAll();
+    }
+
+    private static long jsonSize(Path directory) throws IOException {
+        long size = 0;
+        for (String file : new String[]{"users.json", "providers.json", "commodities.json", "comments.json"})
+            size += Files.size(directory.resolve(file));
+
+        return size;
+    }
+
+    private static void writeDataset(Path directory) throws IOException {
+        Random random = new Random(42);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User("user" + i, "password" + i, "user" + i + "@mail.com", "2000-01-01", "address " + i);
+            user.setCredit(random.nextInt(1000));
+            users.add(user);
+        }
+        objectMapper.writeValue(directory.resolve("users.json").toFile(), users);
+
+        List<Provider> providers = new ArrayList<>();
+        for (int i = 0; i < PROVIDERS; i++) {
+            Provider provider = new Provider();
+            provider.setId(String.valueOf(i));
+            provider.setName("provider" + i);
+            provider.setRegistryDate("2023-01-01");
+            provider.setImage("");
+            providers.add(provider);
+        }
+        objectMapper.writeValue(directory.resolve("providers.json").toFile(), providers);
+
+        List<Commodity> commodities = new ArrayList<>();
+        for (int i = 0; i < COMMODITIES; i++) {
+            Commodity commodity = new Commodity();
+            commodity.setId(String.valueOf(i));
+            commodity.setName("commodity " + i);
+            commodity.setProviderId(String.valueOf(random.nextInt(PROVIDERS)));
+            commodity.setPrice(random.nextInt(1000));
+            commodity.setCategories(new ArrayList<>(List.of(CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    CATEGORIES[random.nextInt(CATEGORIES.length)])));
+            commodity.setRating(random.nextInt(100) / 10f);
+            commodity.setInStock(random.nextInt(100));
+            commodity.setImage("");
+            commodities.add(commodity);
+        }
+        objectMapper.writeValue(directory.resolve("commodities.json").toFile(), commodities);
+
+        List<Map<String, Object>> comments = new ArrayList<>();
+        for (int i = 0; i < COMMENTS; i++) {
+            int user = random.nextInt(USERS);
+            comments.add(Map.of("userEmail", "user" + user + "@mail.com", "username", "user" + user,
+                    "commodityId", random.nextInt(COMMODITIES), "text", "comment text number " + i,
+                    "date", "2023-01-01"));
+        }
+        objectMapper.writeValue(directory.resolve("comments.json").toFile(), comments);
+    }
+}
@@ -0,0 +1,73 @@
+package database;
+
+import model.Commodity;
+
+import java.util.*;
+
+// Compares the indexed top-K suggestions against scoring and sorting every commodity.
+// Run with: java -cp target/classes:target/test-classes:<dependencies> database.SuggestionBenchmark
+public class SuggestionBenchmark {
+    private static final int CATEGORIES = 50;
+    private static final int LIMIT = 4;
+    private static final int QUERIES = 200;
+
+    public static void main(String[] args) {
+        for (int size : new int[]{100_000, 1_000_000})
+            run(size);
+    }
+
+    private static void run(int size) {
+        Random random = new Random(42);
+        ArrayList<Commodity> commodities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Commodity commodity = new Commodity();
+            commodity.setId(String.valueOf(i));
+            commodity.setName("commodity " + i);
+            commodity.setCategories(new ArrayList<>(List.of("category" + random.nextInt(CATEGORIES),
+                    "category" + random.nextInt(CATEGORIES))));
+            commodity.setRating(random.nextInt(100) / 10f);
+            commodities.add(commodity);
+        }
+        Database database = Database.getInstance();
+        database.setCommodities(commodities);
+
+        long blackhole = 0;
+        for (int i = 0; i < 5; i++)
+            blackhole += fullSort(commodities, commodities.get(i)).size();
+        for (int i = 0; i < QUERIES; i++)
+            blackhole += database.findSimilarCommodities(commodities.get(random.nextInt(size)), LIMIT).size();
+
+        int sortQueries = 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < sortQueries; i++)
+            blackhole += fullSort(commodities, commodities.get(random.nextInt(size))).size();
+        long sortNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++)
+            blackhole += database.findSimilarCommodities(commodities.get(random.nextInt(size)), LIMIT).size();
+        long indexNanos = System.nanoTime() - start;
+
+        System.out.printf("%,d commodities: full sort %.3f ms/query, top-K %.3f ms/query (%d)%n",
+                size, sortNanos / 1e6 / sortQueries, indexNanos / 1e6 / QUERIES, blackhole);
+    }
+
+    private static List<Commodity> fullSort(List<Commodity> commodities, Commodity commodity) {
+        Hashtable<Commodity, Float> scores = new Hashtable<>();
+        for (Commodity other : commodities) {
+            if (other == commodity)
+                continue;
+
+            boolean similar = !Collections.disjoint(commodity.getCategories(), other.getCategories());
+            scores.put(other, (similar ? 11 : 0) + other.getRating());
+        }
+
+        List<Map.Entry<Commodity, Float>> list = new ArrayList<>(scores.entrySet());
+        list.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        List<Commodity> result = new ArrayList<>();
+        for (int i = 0; i < LIMIT && i < list.size(); i++)
+            result.add(list.get(i).getKey());
+
+        return result;
+    }
+}
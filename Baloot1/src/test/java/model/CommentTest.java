@@ -127,4 +127,34 @@ public class CommentTest {
         Assertions.assertEquals(2, comment.getLike());
         Assertions.assertEquals(2, comment.getDislike());
     }
+
+    @Test
+    @DisplayName("Test concurrent votes and flips keep the counters exact")
+    public void testConcurrentVotesAndFlips() throws InterruptedException {
+        int voters = 8;
+        int votesPerVoter = 5000;
+        Thread[] threads = new Thread[voters];
+        for (int i = 0; i < threads.length; i++) {
+            int voter = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < votesPerVoter; j++)
+                    comment.addUserVote("person" + (j % 100), (j + voter) % 3 == 0 ? "dislike" : "like");
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        long likes = comment.getUserVote().values().stream().filter(vote -> vote == Vote.LIKE).count();
+        Assertions.assertEquals(100, comment.getUserVote().size());
+        Assertions.assertEquals(likes, comment.getLike());
+        Assertions.assertEquals(100 - likes, comment.getDislike());
+    }
+
+    @Test
+    @DisplayName("Test an unknown vote is rejected")
+    public void testUnknownVote() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> comment.addUserVote("person", "love"));
+        Assertions.assertTrue(comment.getUserVote().isEmpty());
+    }
 }
@@ -6,6 +6,11 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class CommodityTest {
     private Commodity commodity;
     private final float delta = 1e-3f;
@@ -29,6 +34,50 @@ public class CommodityTest {
         Assertions.assertThrows(NotInStock.class, () -> commodity.updateInStock(-1));
     }
 
+    @Test
+    @DisplayName("Test failed stock update leaves stock unchanged")
+    public void testTryUpdateInStockFailureLeavesStock() {
+        commodity.setInStock(2);
+        Assertions.assertFalse(commodity.tryUpdateInStock(-3));
+        Assertions.assertEquals(2, commodity.getInStock());
+    }
+
+    @Test
+    @DisplayName("Test the version moves on every change and only on a change")
+    public void testVersionMovesOnChange() throws NotInStock {
+        long created = commodity.getVersion();
+        commodity.addRate("person", 4);
+        long rated = commodity.getVersion();
+        Assertions.assertNotEquals(created, rated);
+
+        Assertions.assertFalse(commodity.tryUpdateInStock(-1));
+        Assertions.assertEquals(rated, commodity.getVersion());
+        commodity.updateInStock(3);
+        Assertions.assertNotEquals(rated, commodity.getVersion());
+        Assertions.assertNotEquals(created, new Commodity().getVersion());
+    }
+
+    @Test
+    @DisplayName("Test concurrent stock updates never oversell")
+    public void testConcurrentStockUpdatesNeverOversell() throws InterruptedException {
+        int stock = 1000;
+        commodity.setInStock(stock);
+        AtomicInteger sold = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                while (commodity.tryUpdateInStock(-1))
+                    sold.incrementAndGet();
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Assertions.assertEquals(stock, sold.get());
+        Assertions.assertEquals(0, commodity.getInStock());
+    }
+
     @Test
     @DisplayName("Test initial rating")
     public void testInitialRateShouldBeZero() {
@@ -69,6 +118,43 @@ public class CommodityTest {
         Assertions.assertEquals(2.5f, commodity.getRating());
     }
 
+    @Test
+    @DisplayName("Test re-rating replaces the previous score in the running totals")
+    public void testReRateReplacesScore() {
+        commodity.addRate("username1", 4);
+        commodity.addRate("username2", 8);
+        commodity.addRate("username1", 10);
+        Assertions.assertEquals(6f, commodity.getRating(), delta);
+
+        commodity.setUserRate(Map.of("username1", 2));
+        commodity.addRate("username2", 4);
+        Assertions.assertEquals(2f, commodity.getRating(), delta);
+    }
+
+    @Test
+    @DisplayName("Test concurrent ratings on one commodity are never lost")
+    public void testConcurrentRatingsAreNeverLost() throws InterruptedException {
+        int raters = 8;
+        int ratesPerRater = 2000;
+        Thread[] threads = new Thread[raters];
+        for (int i = 0; i < threads.length; i++) {
+            int rater = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < ratesPerRater; j++)
+                    commodity.addRate("user" + rater + "-" + (j % 500), j % 10 + 1);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        int sum = 0;
+        for (int score : commodity.getUserRate().values())
+            sum += score;
+        Assertions.assertEquals(raters * 500, commodity.getUserRate().size());
+        Assertions.assertEquals((float) sum / (raters * 500 + 1), commodity.getRating(), delta);
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {1, 10})
     @DisplayName("Test adding rate with corner values")
@@ -82,4 +168,66 @@ public class CommodityTest {
     public void testAddRateWithInvalidRange(int rate) {
         Assertions.assertThrows(IllegalArgumentException.class, () -> commodity.addRate("username", rate));
     }
+
+    @Test
+    @DisplayName("Test a bound commodity and its columns agree after every kind of change")
+    public void testColumnsFollowMutations() throws NotInStock {
+        commodity.setPrice(100);
+        commodity.setInStock(3);
+        commodity.setCategories(new ArrayList<>(List.of("phone")));
+        commodity.addRate("username", 5);
+        CommodityColumns columns = new CommodityColumns();
+        columns.bind(commodity, 5000);
+        assertMatchesColumns(columns, 5000);
+
+        commodity.setPrice(120);
+        commodity.updateInStock(-2);
+        commodity.addRate("username2", 9);
+        commodity.setCategories(new ArrayList<>(List.of("phone", "tech")));
+        assertMatchesColumns(columns, 5000);
+        Assertions.assertFalse(commodity.tryUpdateInStock(-2));
+        Assertions.assertEquals(1, columns.getInStock(5000));
+
+        columns.unbind(commodity);
+        columns.setPrice(5000, 1);
+        Assertions.assertEquals(120, commodity.getPrice());
+        Assertions.assertEquals(1, commodity.getInStock());
+        Assertions.assertEquals(14f / 3, commodity.getRating(), delta);
+    }
+
+    private void assertMatchesColumns(CommodityColumns columns, int ordinal) {
+        Assertions.assertEquals(commodity.getPrice(), columns.getPrice(ordinal));
+        Assertions.assertEquals(commodity.getInStock(), columns.getInStock(ordinal));
+        Assertions.assertEquals(commodity.getRating(), columns.getRating(ordinal));
+        Assertions.assertEquals(columns.categoryBits(commodity.getCategories()), columns.getCategoryBits(ordinal));
+    }
+
+    @Test
+    @DisplayName("Test concurrent stock updates on bound commodities never oversell")
+    public void testConcurrentColumnStockUpdatesNeverOversell() throws InterruptedException {
+        int stock = 1000;
+        CommodityColumns columns = new CommodityColumns();
+        Commodity[] commodities = new Commodity[3];
+        for (int i = 0; i < commodities.length; i++) {
+            commodities[i] = new Commodity();
+            commodities[i].setInStock(stock);
+            columns.bind(commodities[i], i);
+        }
+        AtomicInteger sold = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            Commodity target = commodities[i % commodities.length];
+            threads[i] = new Thread(() -> {
+                while (target.tryUpdateInStock(-1))
+                    sold.incrementAndGet();
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Assertions.assertEquals(stock * commodities.length, sold.get());
+        for (int i = 0; i < commodities.length; i++)
+            Assertions.assertEquals(0, columns.getInStock(i));
+    }
 }
@@ -8,6 +8,9 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class UserTest {
     private User user;
     private final float initialCredit = 10.0f;
@@ -140,4 +143,36 @@ public class UserTest {
         user.removeItemFromBuyList(commodity);
         Assertions.assertEquals(3, user.getBuyList().get("1"));
     }
+
+    @Test
+    @DisplayName("Test a batch update applies every delta")
+    public void testUpdateBuyList() throws CommodityIsNotInBuyList, NotInStock {
+        Commodity phone = new Commodity();
+        phone.setId("1");
+        phone.setInStock(5);
+        Commodity book = new Commodity();
+        book.setId("2");
+        user.getBuyList().put("2", 2);
+        user.updateBuyList(Map.of(phone, 5, book, -2));
+        Assertions.assertEquals(Map.of("1", 5), user.getBuyList());
+    }
+
+    @Test
+    @DisplayName("Test a batch update with one invalid delta changes nothing")
+    public void testUpdateBuyListIsAtomic() {
+        Commodity phone = new Commodity();
+        phone.setId("1");
+        phone.setInStock(5);
+        Commodity book = new Commodity();
+        book.setId("2");
+        book.setInStock(1);
+        user.getBuyList().put("2", 1);
+
+        Map<Commodity, Integer> overStock = new LinkedHashMap<>();
+        overStock.put(phone, 1);
+        overStock.put(book, 1);
+        Assertions.assertThrows(NotInStock.class, () -> user.updateBuyList(overStock));
+        Assertions.assertThrows(CommodityIsNotInBuyList.class, () -> user.updateBuyList(Map.of(book, -2)));
+        Assertions.assertEquals(Map.of("2", 1), user.getBuyList());
+    }
 }
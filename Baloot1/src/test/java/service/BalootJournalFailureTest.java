@@ -0,0 +1,76 @@
+package service;
+
+import database.Database;
+import database.Journal;
+import exceptions.ChangeNotSaved;
+import model.Commodity;
+import model.User;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+public class BalootJournalFailureTest {
+    @TempDir
+    Path directory;
+    private Baloot baloot;
+    private Database database;
+    private Journal previous;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        baloot = Baloot.getInstance();
+        database = Database.getInstance();
+        Journal closed = Journal.open(directory.resolve("closed.journal"), 1000, 16, record -> {
+        });
+        closed.close();
+        previous = baloot.replaceJournal(closed);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        baloot.replaceJournal(previous);
+    }
+
+    @Test
+    @DisplayName("Test a change the journal cannot take is refused and never applied")
+    public void testChangeNotAppliedWhenJournalFails() {
+        String username = "journal-" + UUID.randomUUID();
+        User user = new User(username, "pass", "mail", "2000-01-01", "address");
+        Assertions.assertThrows(ChangeNotSaved.class, () -> baloot.addUser(user));
+        Assertions.assertNull(database.findUser(username));
+
+        database.addUser(user);
+        Assertions.assertThrows(ChangeNotSaved.class, () -> baloot.addCredit(user, 10));
+        Assertions.assertEquals(0, user.getCredit());
+
+        Commodity commodity = database.getCommodities().get(0);
+        float rating = commodity.getRating();
+        Assertions.assertThrows(ChangeNotSaved.class, () -> baloot.rateCommodity(commodity, username, 10));
+        Assertions.assertNull(commodity.getUserRate().get(username));
+        Assertions.assertEquals(rating, commodity.getRating());
+    }
+
+    @Test
+    @DisplayName("Test a purchase the journal cannot take is rolled back")
+    public void testPurchaseRolledBackWhenJournalFails() throws Exception {
+        String username = "journal-" + UUID.randomUUID();
+        User user = new User(username, "pass", "mail", "2000-01-01", "address");
+        database.addUser(user);
+        Commodity commodity = database.getCommodities().stream()
+                .filter(candidate -> candidate.getInStock() > 0)
+                .findFirst().orElseThrow();
+        int stock = commodity.getInStock();
+        user.setCredit(commodity.getPrice() + 1f);
+        user.addBuyItem(commodity);
+
+        Assertions.assertThrows(ChangeNotSaved.class, () -> baloot.withdrawPayableAmount(user));
+        Assertions.assertEquals(commodity.getPrice() + 1f, user.getCredit());
+        Assertions.assertEquals(Map.of(commodity.getId(), 1), user.getBuyList());
+        Assertions.assertTrue(user.getPurchasedList().isEmpty());
+        Assertions.assertEquals(stock, commodity.getInStock());
+    }
+}
@@ -0,0 +1,29 @@
+package service;
+
+import database.Database;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class BalootStartupTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Test startup fails without a snapshot once the journal has dropped records")
+    public void testMissingSnapshotUnderTruncatedJournal() {
+        Path snapshot = directory.resolve("baloot.snapshot");
+        Assertions.assertThrows(IOException.class, () -> Baloot.loadState(Database.getInstance(), snapshot, 5));
+        Assertions.assertThrows(IOException.class, () -> Baloot.loadState(Database.getInstance(), null, 5));
+    }
+
+    @Test
+    @DisplayName("Test startup fails on an unreadable snapshot once the journal has dropped records")
+    public void testUnreadableSnapshotUnderTruncatedJournal() throws IOException {
+        Path snapshot = Files.write(directory.resolve("baloot.snapshot"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        Assertions.assertThrows(IOException.class, () -> Baloot.loadState(Database.getInstance(), snapshot, 5));
+    }
+}
@@ -0,0 +1,160 @@
+package service;
+
+import database.Database;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import model.Commodity;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SuggestionCacheTest {
+    private static final int LIMIT = 2;
+
+    private final Map<String, Commodity> commodities = new LinkedHashMap<>();
+    private final AtomicInteger computations = new AtomicInteger();
+    private SimpleMeterRegistry registry;
+    private Runnable duringSuggest = () -> {
+    };
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        commodities.clear();
+        computations.set(0);
+        add("phone1", "phone", 9);
+        add("phone2", "phone", 8);
+        add("phone3", "phone", 7);
+        add("book1", "book", 5);
+        add("book2", "book", 4);
+    }
+
+    private void add(String id, String category, float rating) {
+        Commodity commodity = new Commodity();
+        commodity.setId(id);
+        commodity.setCategories(new ArrayList<>(List.of(category)));
+        commodity.setRating(rating);
+        commodities.put(id, commodity);
+    }
+
+    private List<Commodity> suggest(Commodity commodity) {
+        computations.incrementAndGet();
+        List<Commodity> others = new ArrayList<>(commodities.values());
+        others.remove(commodity);
+        others.sort(Comparator.comparing((Commodity other) -> Database.similarityScore(commodity, other)).reversed());
+        duringSuggest.run();
+        return others.subList(0, LIMIT);
+    }
+
+    private SuggestionCache cache(Duration ttl) {
+        return new SuggestionCache(this::suggest, LIMIT, ttl, registry);
+    }
+
+    private double count(String result) {
+        return registry.counter("baloot.suggestions.cache", "result", result).count();
+    }
+
+    @Test
+    @DisplayName("Test repeated lookups are served from the cache")
+    public void testHitsAndMisses() {
+        SuggestionCache cache = cache(Duration.ofMinutes(1));
+        Commodity phone = commodities.get("phone1");
+
+        Assertions.assertEquals(List.of(commodities.get("phone2"), commodities.get("phone3")), cache.get(phone));
+        Assertions.assertEquals(List.of(commodities.get("phone2"), commodities.get("phone3")), cache.get(phone));
+        Assertions.assertEquals(1, computations.get());
+        Assertions.assertEquals(1, count("miss"));
+        Assertions.assertEquals(1, count("hit"));
+    }
+
+    @Test
+    @DisplayName("Test only entries a rating change can affect are rebuilt")
+    public void testTargetedInvalidation() throws Exception {
+        SuggestionCache cache = cache(Duration.ofMinutes(1));
+        Commodity phone = commodities.get("phone1");
+        Commodity book = commodities.get("book1");
+        cache.get(phone);
+        cache.get(book);
+
+        Commodity book2 = commodities.get("book2");
+        book2.setRating(4.5f);
+        cache.commodityChanged(book2);
+        cache.awaitRebuilds();
+        Assertions.assertEquals(3, computations.get());
+
+        Commodity phone3 = commodities.get("phone3");
+        phone3.setRating(8.5f);
+        cache.commodityChanged(phone3);
+        cache.awaitRebuilds();
+        Assertions.assertEquals(4, computations.get());
+        Assertions.assertEquals(List.of(phone3, commodities.get("phone2")), cache.get(phone));
+        Assertions.assertEquals(2, registry.counter("baloot.suggestions.cache.invalidations").count());
+    }
+
+    @Test
+    @DisplayName("Test expired entries are served stale and rebuilt in the background")
+    public void testExpiredEntriesAreRebuilt() throws Exception {
+        SuggestionCache cache = cache(Duration.ZERO);
+        Commodity phone = commodities.get("phone1");
+        cache.get(phone);
+
+        List<Commodity> stale = cache.get(phone);
+        cache.awaitRebuilds();
+        Assertions.assertEquals(LIMIT, stale.size());
+        Assertions.assertEquals(2, computations.get());
+        Assertions.assertEquals(1, count("stale"));
+    }
+
+    private void changeWhileBuilding(SuggestionCache cache, Commodity changed, float rating) {
+        duringSuggest = () -> {
+            duringSuggest = () -> {
+            };
+            changed.setRating(rating);
+            cache.commodityChanged(changed);
+            try {
+                cache.awaitRebuilds();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Test a change landing during a build only marks the entry stale if it can affect it")
+    public void testChangesDuringBuild() throws Exception {
+        SuggestionCache cache = cache(Duration.ofMinutes(1));
+        Commodity phone = commodities.get("phone1");
+        cache.get(commodities.get("book1"));
+
+        changeWhileBuilding(cache, commodities.get("book2"), 4.5f);
+        cache.get(phone);
+        cache.awaitRebuilds();
+        cache.get(phone);
+        Assertions.assertEquals(1, count("hit"));
+
+        Commodity phone2 = commodities.get("phone2");
+        changeWhileBuilding(cache, commodities.get("phone1"), 1);
+        Assertions.assertEquals(List.of(phone, commodities.get("phone3")), cache.get(phone2));
+        cache.awaitRebuilds();
+        Assertions.assertEquals(List.of(commodities.get("phone3"), phone), cache.get(phone2));
+    }
+
+    @Test
+    @DisplayName("Test repeated changes to one commodity are handled once")
+    public void testChangesAreCoalesced() throws Exception {
+        SuggestionCache cache = cache(Duration.ofMinutes(1));
+        cache.get(commodities.get("phone1"));
+        Commodity phone3 = commodities.get("phone3");
+        duringSuggest = () -> {
+        };
+        for (int i = 0; i < 1000; i++) {
+            phone3.setRating(7 + i % 2);
+            cache.commodityChanged(phone3);
+        }
+        cache.awaitRebuilds();
+
+        Assertions.assertTrue(computations.get() < 100);
+        Assertions.assertEquals(List.of(commodities.get("phone2"), phone3), cache.get(commodities.get("phone1")));
+    }
+}
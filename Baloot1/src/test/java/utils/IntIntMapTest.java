@@ -0,0 +1,66 @@
+package utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class IntIntMapTest {
+    @Test
+    @DisplayName("Test random puts, additions and removals agree with a HashMap")
+    public void testAgreesWithHashMap() {
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(18);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(500) - 100;
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    map.put(key, i);
+                    expected.put(key, i);
+                }
+                case 1 -> {
+                    map.addTo(key, 1);
+                    expected.merge(key, 1, Integer::sum);
+                }
+                default -> Assertions.assertEquals(expected.remove(key) == null ? -1 : map.get(key, -1), map.remove(key, -1));
+            }
+            expected.values().removeIf(value -> value == 0);
+        }
+
+        Assertions.assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> Assertions.assertEquals(value, map.get(key, -1)));
+        Assertions.assertEquals(expected, new IntKeyedMap<>(map, IntKeyedMap.INTEGER_KEYS));
+    }
+
+    @Test
+    @DisplayName("Test an entry reaching zero is removed and the empty key is rejected")
+    public void testAddToAndReservedKey() {
+        IntIntMap map = new IntIntMap();
+        Assertions.assertFalse(map.addToIfPresent(3, -1));
+        map.addTo(3, 2);
+        Assertions.assertTrue(map.addToIfPresent(3, -1));
+        Assertions.assertTrue(map.addToIfPresent(3, -1));
+        Assertions.assertFalse(map.containsKey(3));
+        Assertions.assertEquals(0, map.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(IntIntMap.EMPTY, 1));
+    }
+
+    @Test
+    @DisplayName("Test the map view reads, writes and removes through the int map")
+    public void testView() {
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> view = new IntKeyedMap<>(map, IntKeyedMap.INTEGER_KEYS);
+        Assertions.assertNull(view.put(5, 1));
+        Assertions.assertEquals(1, view.put(5, 4));
+        Assertions.assertEquals(4, map.get(5, 0));
+        Assertions.assertNull(view.get("5"));
+        Assertions.assertNull(view.get(6));
+
+        view.entrySet().removeIf(entry -> entry.getKey() == 5);
+        Assertions.assertTrue(view.isEmpty());
+    }
+}